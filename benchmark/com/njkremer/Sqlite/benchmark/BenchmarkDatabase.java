@@ -0,0 +1,105 @@
+package com.njkremer.Sqlite.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.njkremer.Sqlite.DataConnectionException;
+import com.njkremer.Sqlite.DataConnectionManager;
+import com.njkremer.Sqlite.SqlStatement;
+
+/**
+ * Sets up the database the benchmarks run against, either a file in the temp directory or an in memory database.
+ * The ORM has a single, static connection, so every benchmark needs to run in its own fork.
+ */
+final class BenchmarkDatabase {
+
+    static final String FILE = "file";
+    static final String MEMORY = "memory";
+
+    /**
+     * Opens a new, empty database with the customer and purchase tables.
+     *
+     * @param storage {@linkplain #FILE} or {@linkplain #MEMORY}.
+     * @return The database file, or null if it's in memory.
+     */
+    static File open(String storage) throws IOException, SQLException {
+        DataConnectionManager.close();
+        File database = null;
+        if (FILE.equals(storage)) {
+            database = File.createTempFile("benchmark", ".db");
+            DataConnectionManager.init(database.getName(), database.getParent());
+        }
+        else if (MEMORY.equals(storage)) {
+            DataConnectionManager.initInMemory();
+        }
+        else {
+            throw new IllegalArgumentException("Unknown storage " + storage);
+        }
+
+        Statement statement = DataConnectionManager.getConnection().createStatement();
+        try {
+            statement.execute("create table customer (id INTEGER PRIMARY KEY, name TEXT, email TEXT, age INTEGER, created TEXT)");
+            statement.execute("create table purchase (id INTEGER PRIMARY KEY, customerId INTEGER, description TEXT, amount REAL)");
+            statement.execute("create index purchase_customer on purchase (customerId)");
+        }
+        finally {
+            statement.close();
+        }
+        return database;
+    }
+
+    /**
+     * Inserts the passed in number of customers, each with one purchase.
+     */
+    static void populate(int rows) throws DataConnectionException {
+        List<Customer> customers = new ArrayList<Customer>(rows);
+        for (int i = 0; i < rows; i++) {
+            customers.add(newCustomer(i));
+        }
+        List<Long> ids = SqlStatement.insertAll(customers);
+
+        List<Purchase> purchases = new ArrayList<Purchase>(rows);
+        for (int i = 0; i < rows; i++) {
+            purchases.add(newPurchase(ids.get(i), i));
+        }
+        SqlStatement.insertAll(purchases);
+    }
+
+    static Customer newCustomer(int i) {
+        Customer customer = new Customer();
+        customer.setName("Customer " + i);
+        customer.setEmail("customer" + i + "@example.com");
+        customer.setAge(18 + i % 60);
+        customer.setCreated(new Date(1350000000000L + i * 1000L));
+        return customer;
+    }
+
+    static Purchase newPurchase(long customerId, int i) {
+        Purchase purchase = new Purchase();
+        purchase.setCustomerId(customerId);
+        purchase.setDescription("Purchase " + i);
+        purchase.setAmount(i % 1000 / 10.0);
+        return purchase;
+    }
+
+    /**
+     * Closes the connection and deletes the database file, if there is one.
+     */
+    static void close(File database) {
+        DataConnectionManager.close();
+        if (database != null) {
+            for (String suffix : Arrays.asList("", "-journal", "-wal", "-shm")) {
+                new File(database.getPath() + suffix).delete();
+            }
+        }
+    }
+
+    private BenchmarkDatabase() {
+    }
+}
@@ -0,0 +1,58 @@
+package com.njkremer.Sqlite.benchmark;
+
+import java.util.Date;
+import java.util.List;
+
+import com.njkremer.Sqlite.Annotations.AutoIncrement;
+import com.njkremer.Sqlite.Annotations.OneToMany;
+import com.njkremer.Sqlite.Annotations.PrimaryKey;
+
+public class Customer {
+    @AutoIncrement
+    @PrimaryKey
+    private long id;
+    private String name;
+    private String email;
+    private int age;
+    private Date created;
+
+    @OneToMany("customerId")
+    private List<Purchase> purchases;
+
+    public long getId() {
+        return id;
+    }
+    public void setId(long id) {
+        this.id = id;
+    }
+    public String getName() {
+        return name;
+    }
+    public void setName(String name) {
+        this.name = name;
+    }
+    public String getEmail() {
+        return email;
+    }
+    public void setEmail(String email) {
+        this.email = email;
+    }
+    public int getAge() {
+        return age;
+    }
+    public void setAge(int age) {
+        this.age = age;
+    }
+    public Date getCreated() {
+        return created;
+    }
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+    public List<Purchase> getPurchases() {
+        return purchases;
+    }
+    public void setPurchases(List<Purchase> purchases) {
+        this.purchases = purchases;
+    }
+}
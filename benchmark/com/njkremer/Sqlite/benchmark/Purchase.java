@@ -0,0 +1,38 @@
+package com.njkremer.Sqlite.benchmark;
+
+import com.njkremer.Sqlite.Annotations.AutoIncrement;
+import com.njkremer.Sqlite.Annotations.PrimaryKey;
+
+public class Purchase {
+    @AutoIncrement
+    @PrimaryKey
+    private long id;
+    private long customerId;
+    private String description;
+    private double amount;
+
+    public long getId() {
+        return id;
+    }
+    public void setId(long id) {
+        this.id = id;
+    }
+    public long getCustomerId() {
+        return customerId;
+    }
+    public void setCustomerId(long customerId) {
+        this.customerId = customerId;
+    }
+    public String getDescription() {
+        return description;
+    }
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    public double getAmount() {
+        return amount;
+    }
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,103 @@
+package com.njkremer.Sqlite.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.njkremer.Sqlite.ColumnExpression;
+import com.njkremer.Sqlite.DataConnectionException;
+import com.njkremer.Sqlite.SqlStatement;
+
+/**
+ * Benchmarks the queries of the ORM against a database of customers that each have one purchase.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+
+    @Param({ BenchmarkDatabase.FILE, BenchmarkDatabase.MEMORY })
+    public String storage;
+
+    @Param({ "1000", "100000" })
+    public int rows;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        database = BenchmarkDatabase.open(storage);
+        BenchmarkDatabase.populate(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        BenchmarkDatabase.close(database);
+    }
+
+    @Benchmark
+    public Customer findById() throws DataConnectionException {
+        next = next % rows + 1;
+        return SqlStatement.findById(Customer.class, next);
+    }
+
+    /**
+     * Reads every customer into an object.
+     */
+    @Benchmark
+    public List<Customer> getList() throws DataConnectionException {
+        return SqlStatement.select(Customer.class).getList();
+    }
+
+    @Benchmark
+    public int getCount() throws DataConnectionException {
+        return SqlStatement.select(Customer.class).where("age").greaterThan(40).getCount();
+    }
+
+    /**
+     * Reads the name and email of every customer into maps.
+     */
+    @Benchmark
+    public List<Map<String, Object>> getColumns() throws DataConnectionException {
+        return SqlStatement.select(Customer.class).getColumns(new ColumnExpression().column("name").column("email"));
+    }
+
+    /**
+     * Reads the purchases of the customers of one age, about 1 in 60 of them.
+     */
+    @Benchmark
+    public List<Purchase> join() throws DataConnectionException {
+        return SqlStatement.select(Purchase.class).join(Customer.class, "id", Purchase.class, "customerId").where(Customer.class, "age").eq(30).getList();
+    }
+
+    /**
+     * Reads 100 customers and faults in the purchases of each of them.
+     */
+    @Benchmark
+    public int relationshipFaulting() throws DataConnectionException {
+        int purchases = 0;
+        for (Customer customer : SqlStatement.select(Customer.class).limit(100).getList()) {
+            purchases += customer.getPurchases().size();
+        }
+        return purchases;
+    }
+
+    private File database;
+    private int next;
+}
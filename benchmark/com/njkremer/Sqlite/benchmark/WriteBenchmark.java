@@ -0,0 +1,68 @@
+package com.njkremer.Sqlite.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.njkremer.Sqlite.DataConnectionException;
+import com.njkremer.Sqlite.SqlStatement;
+
+/**
+ * Benchmarks inserting customers one at a time, each in its own transaction, and as a batch of 1000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+
+    @Param({ BenchmarkDatabase.FILE, BenchmarkDatabase.MEMORY })
+    public String storage;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        database = BenchmarkDatabase.open(storage);
+        batch = new ArrayList<Customer>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(BenchmarkDatabase.newCustomer(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        BenchmarkDatabase.close(database);
+    }
+
+    @Benchmark
+    public void singleInsert() throws DataConnectionException {
+        SqlStatement.insert(BenchmarkDatabase.newCustomer(count++)).execute();
+    }
+
+    @Benchmark
+    public List<Long> bulkInsert() throws DataConnectionException {
+        return SqlStatement.insertAll(batch);
+    }
+
+    private static final int BATCH_SIZE = 1000;
+
+    private File database;
+    private List<Customer> batch;
+    private int count;
+}
@@ -0,0 +1,333 @@
+package com.njkremer.Sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.njkremer.Sqlite.ConnectionPool.PooledConnection;
+import com.njkremer.Sqlite.utils.SqliteUtils;
+
+/**
+ * Runs the statements for many objects of the same class as JDBC batches, or as a few statements that each cover
+ * many objects, so each statement is only prepared once and all of the objects are written in a single transaction.
+ */
+final class BatchExecutor {
+
+    /**
+     * Inserts all of the passed in objects with the same prepared statement, executing it every chunkSize objects,
+     * and writes the generated keys back into the {@linkplain com.njkremer.Sqlite.Annotations.AutoIncrement} field
+     * of each object. Objects in the {@linkplain com.njkremer.Sqlite.Annotations.OneToMany} relationships of the
+     * inserted objects are saved the same way a single insert saves them.
+     *
+     * @param objects The objects to insert, which must all be of the same class.
+     * @param chunkSize The number of objects to add to a batch before it's executed.
+     * @return The generated keys in the order the objects were inserted, or an empty list if the class doesn't have
+     * an {@linkplain com.njkremer.Sqlite.Annotations.AutoIncrement} field.
+     * @throws DataConnectionException
+     */
+    static <T> List<Long> insertAll(final Collection<T> objects, final int chunkSize) throws DataConnectionException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be at least 1");
+        }
+        if (objects.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final EntityMetadata metadata = EntityMetadata.forClass(getCommonClass(objects));
+
+        return SqlStatement.inTransaction(new TransactionWork<List<Long>>() {
+            public List<Long> execute() throws DataConnectionException {
+                return insertAll(metadata, objects, chunkSize);
+            }
+        });
+    }
+
+    /**
+     * Updates all of the passed in objects by their primary key with the same prepared statement, executing it every
+     * chunkSize objects. Objects in the {@linkplain com.njkremer.Sqlite.Annotations.OneToMany} relationships of the
+     * updated objects are saved the same way a single update saves them.
+     *
+     * @param objects The objects to update, which must all be of the same class.
+     * @param chunkSize The number of objects to add to a batch before it's executed.
+     * @return The number of rows that were updated.
+     * @throws DataConnectionException
+     */
+    static <T> int updateAll(final Collection<T> objects, final int chunkSize) throws DataConnectionException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be at least 1");
+        }
+        if (objects.isEmpty()) {
+            return 0;
+        }
+        final EntityMetadata metadata = EntityMetadata.forClass(getCommonClass(objects));
+        checkPrimaryKey(metadata);
+
+        return SqlStatement.inTransaction(new TransactionWork<Integer>() {
+            public Integer execute() throws DataConnectionException {
+                return updateAll(metadata, objects, chunkSize);
+            }
+        });
+    }
+
+    /**
+     * Deletes the rows of all of the passed in objects by their primary key. The keys are deleted with
+     * <code>where pk in (...)</code> statements of at most 999 keys, which is the most
+     * parameters SQLite allows in a statement.
+     *
+     * @param objects The objects to delete, which must all be of the same class.
+     * @return The number of rows that were deleted.
+     * @throws DataConnectionException
+     */
+    static <T> int deleteAll(Collection<T> objects) throws DataConnectionException {
+        if (objects.isEmpty()) {
+            return 0;
+        }
+        final EntityMetadata metadata = EntityMetadata.forClass(getCommonClass(objects));
+        checkPrimaryKey(metadata);
+
+        final List<Object> keys = new ArrayList<Object>(objects.size());
+        for (T object : objects) {
+            keys.add(metadata.getPrimaryKey().getValue(object));
+        }
+        return SqlStatement.inTransaction(new TransactionWork<Integer>() {
+            public Integer execute() throws DataConnectionException {
+                return deleteAll(metadata, keys);
+            }
+        });
+    }
+
+    private static <T> List<Long> insertAll(EntityMetadata metadata, Collection<T> objects, int chunkSize) throws DataConnectionException {
+        List<ColumnMetadata> columns = metadata.getPersistedColumns();
+        ColumnMetadata autoIncrementColumn = metadata.getAutoIncrementColumn();
+        List<Long> keys = new ArrayList<Long>(autoIncrementColumn == null ? 0 : objects.size());
+
+        PooledConnection connection = DataConnectionManager.acquireConnection(StatementType.INSERT);
+        PreparedStatement statement = null;
+        try {
+            String query = SqlExecutor.getInsertQuery(metadata);
+            statement = connection.getStatementCache().prepareBatch(query);
+            List<T> chunk = new ArrayList<T>(Math.min(chunkSize, objects.size()));
+            Iterator<T> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                T object = iterator.next();
+                for (int i = 0; i < columns.size(); i++) {
+                    columns.get(i).bind(statement, i + 1, object);
+                }
+                statement.addBatch();
+                chunk.add(object);
+
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    executeBatch(statement, StatementType.INSERT, query);
+                    DataConnectionManager.tableChanged(metadata.getTableName());
+                    if (autoIncrementColumn != null) {
+                        writeBackKeys(statement, autoIncrementColumn, chunk, keys);
+                    }
+                    saveRelatedObjects(metadata, chunk);
+                    chunk.clear();
+                }
+            }
+            return keys;
+        }
+        catch (SQLException e) {
+            throw new DataConnectionException("Error executing the batch insert", e);
+        }
+        finally {
+            if (statement != null) {
+                connection.getStatementCache().release(statement);
+            }
+            DataConnectionManager.releaseConnection(connection);
+        }
+    }
+
+    private static <T> int updateAll(EntityMetadata metadata, Collection<T> objects, int chunkSize) throws DataConnectionException {
+        List<ColumnMetadata> columns = metadata.getPersistedColumns();
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+        int updated = 0;
+
+        PooledConnection connection = DataConnectionManager.acquireConnection(StatementType.UPDATE);
+        PreparedStatement statement = null;
+        try {
+            String query = SqlExecutor.getUpdateByPrimaryKeyQuery(metadata);
+            statement = connection.getStatementCache().prepareBatch(query);
+            List<T> chunk = new ArrayList<T>(Math.min(chunkSize, objects.size()));
+            Iterator<T> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                T object = iterator.next();
+                for (int i = 0; i < columns.size(); i++) {
+                    columns.get(i).bind(statement, i + 1, object);
+                }
+                primaryKey.bind(statement, columns.size() + 1, object);
+                statement.addBatch();
+                chunk.add(object);
+
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    updated += executeBatch(statement, StatementType.UPDATE, query);
+                    DataConnectionManager.tableChanged(metadata.getTableName());
+                    saveRelatedObjects(metadata, chunk);
+                    chunk.clear();
+                }
+            }
+            return updated;
+        }
+        catch (SQLException e) {
+            throw new DataConnectionException("Error executing the batch update", e);
+        }
+        finally {
+            if (statement != null) {
+                connection.getStatementCache().release(statement);
+            }
+            DataConnectionManager.releaseConnection(connection);
+        }
+    }
+
+    private static int deleteAll(EntityMetadata metadata, List<Object> keys) throws DataConnectionException {
+        int deleted = 0;
+
+        PooledConnection connection = DataConnectionManager.acquireConnection(StatementType.DELETE);
+        try {
+            for (int start = 0; start < keys.size(); start += SqlExecutor.MAX_PARAMETERS) {
+                List<Object> chunk = keys.subList(start, Math.min(start + SqlExecutor.MAX_PARAMETERS, keys.size()));
+                String query = SqlExecutor.getDeleteByPrimaryKeysQuery(metadata, chunk.size());
+                PreparedStatement statement = connection.getStatementCache().prepare(query, false);
+                try {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        SqlExecutor.setParameter(statement, i + 1, chunk.get(i));
+                    }
+                    StatementEvent event = DataConnectionManager.statementStarting(StatementType.DELETE, query, chunk);
+                    int count;
+                    try {
+                        count = statement.executeUpdate();
+                    }
+                    catch (SQLException e) {
+                        DataConnectionManager.statementFinished(event, -1, e);
+                        throw e;
+                    }
+                    DataConnectionManager.statementFinished(event, count, null);
+                    deleted += count;
+                    DataConnectionManager.tableChanged(metadata.getTableName());
+                }
+                finally {
+                    connection.getStatementCache().release(statement);
+                }
+            }
+            return deleted;
+        }
+        catch (SQLException e) {
+            throw new DataConnectionException("Error executing the batch delete", e);
+        }
+        finally {
+            DataConnectionManager.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Executes a batch, telling the {@linkplain StatementListener StatementListeners} about it as a single statement
+     * without parameters.
+     *
+     * @return The total number of rows the batch changed.
+     */
+    private static int executeBatch(PreparedStatement statement, StatementType type, String query) throws SQLException {
+        StatementEvent event = DataConnectionManager.statementStarting(type, query, Collections.<Object>emptyList());
+        int changed = 0;
+        try {
+            for (int count : statement.executeBatch()) {
+                if (count > 0) {
+                    changed += count;
+                }
+            }
+        }
+        catch (SQLException e) {
+            DataConnectionManager.statementFinished(event, -1, e);
+            throw e;
+        }
+        DataConnectionManager.statementFinished(event, changed, null);
+        return changed;
+    }
+
+    /**
+     * The driver only returns the key generated for the last row of a batch, but since the batch runs on the writer
+     * inside of a transaction nothing else can insert into the table in the meantime, so the rows of the batch were
+     * given the keys leading up to it.
+     */
+    private static <T> void writeBackKeys(PreparedStatement statement, ColumnMetadata autoIncrementColumn, List<T> chunk, List<Long> keys) throws SQLException, DataConnectionException {
+        ResultSet generatedKeys = statement.getGeneratedKeys();
+        long lastKey;
+        try {
+            generatedKeys.next();
+            lastKey = generatedKeys.getLong(1);
+        }
+        finally {
+            generatedKeys.close();
+        }
+
+        long key = lastKey - chunk.size() + 1;
+        for (T object : chunk) {
+            autoIncrementColumn.setValue(object, toKeyType(key, autoIncrementColumn.getType()));
+            keys.add(key);
+            key++;
+        }
+    }
+
+    private static <T> void saveRelatedObjects(EntityMetadata metadata, List<T> chunk) throws DataConnectionException {
+        if (!metadata.hasRelationships()) {
+            return;
+        }
+        if (metadata.getPrimaryKey() == null) {
+            throw new DataConnectionException("A @PrimaryKey must be defined to insert objects with relationships");
+        }
+        for (Relationship relationship : metadata.getRelationships().values()) {
+            for (T object : chunk) {
+                List<?> relatedObjects;
+                try {
+                    relatedObjects = (List<?>) relationship.getGetter().invoke(object, (Object[]) null);
+                }
+                catch (Exception e) {
+                    throw new DataConnectionException("Error adding relationship on object insertion", e);
+                }
+                if (relatedObjects != null) {
+                    Object primaryKey = metadata.getPrimaryKey().getValue(object);
+                    for (Object relatedObject : relatedObjects) {
+                        SqlExecutor.saveRelatedObject(relationship, relatedObject, primaryKey);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Object toKeyType(long key, Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            return (int) key;
+        }
+        return key;
+    }
+
+    private static void checkPrimaryKey(EntityMetadata metadata) throws DataConnectionException {
+        if (metadata.getPrimaryKey() == null) {
+            throw new DataConnectionException("pkField couldn't be found... it's probably not declared on the object.");
+        }
+    }
+
+    private static Class<?> getCommonClass(Collection<?> objects) throws DataConnectionException {
+        Class<?> clazz = null;
+        for (Object object : objects) {
+            if (object == null) {
+                throw new DataConnectionException("A batch can not contain a null object");
+            }
+            Class<?> objectClass = SqliteUtils.getClass(object);
+            if (clazz == null) {
+                clazz = objectClass;
+            }
+            else if (clazz != objectClass) {
+                throw new DataConnectionException(String.format("All of the objects in a batch must be of the same class, found both %s and %s", clazz, objectClass));
+            }
+        }
+        return clazz;
+    }
+
+    private BatchExecutor() {
+    }
+}
@@ -0,0 +1,218 @@
+package com.njkremer.Sqlite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.njkremer.Sqlite.ConnectionPool.PooledConnection;
+
+/**
+ * Reads a BLOB column of a single row a chunk at a time, so that a large value can be piped to a file or socket
+ * without the whole value ever being on the heap. This is returned by
+ * {@linkplain SqlStatement#openBlob(Class, String, Object)}.
+ *
+ * <p>The driver can only read a BLOB as a whole byte array, so each chunk is read with its own
+ * <code>select substr(column, ?, ?)</code> query. No connection is held between the chunks, so the stream doesn't
+ * need to be closed, and reading it slowly doesn't keep other threads from the database. The length of the value is
+ * checked with every chunk, so if the row is deleted or the value is replaced with one of a different length while it's
+ * being read, reading the next chunk throws an {@linkplain IOException}. A value that needs to be read consistently
+ * with other writes should be read in a transaction.
+ */
+final class BlobInputStream extends InputStream {
+
+    /**
+     * Opens a stream over the value of a BLOB column.
+     *
+     * @param clazz The POJO class that "maps" to the table.
+     * @param field The name of the field/column of the BLOB.
+     * @param primaryKey The value of the {@linkplain com.njkremer.Sqlite.Annotations.PrimaryKey PrimaryKey} of the row.
+     * @param chunkSize The number of bytes to read with each query.
+     * @return A stream over the value, or null if there is no such row or the value is null.
+     * @throws DataConnectionException
+     */
+    static InputStream open(Class<?> clazz, String field, Object primaryKey, int chunkSize) throws DataConnectionException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be at least 1");
+        }
+        EntityMetadata metadata = EntityMetadata.forClass(clazz);
+        ColumnMetadata primaryKeyColumn = metadata.getPrimaryKey();
+        if (primaryKeyColumn == null) {
+            throw new DataConnectionException("pkField couldn't be found... it's probably not declared on the object.");
+        }
+        ColumnMetadata column = metadata.getColumn(field);
+        if (column == null) {
+            throw new DataConnectionException(String.format("There is no field %s on %s", field, clazz.getSimpleName()));
+        }
+
+        String where = String.format(" from %s where %s = ?", metadata.getTableName(), primaryKeyColumn.getName());
+        String lengthQuery = String.format("select length(%s)", column.getName()).concat(where);
+        String chunkQuery = String.format("select substr(%1$s, ?, ?), length(%1$s)", column.getName()).concat(where);
+
+        PooledConnection connection = DataConnectionManager.acquireConnection(StatementType.SELECT);
+        try {
+            PreparedStatement statement = connection.getStatementCache().prepare(lengthQuery, false);
+            try {
+                SqlExecutor.setParameter(statement, 1, primaryKey);
+                ResultSet resultSet = statement.executeQuery();
+                try {
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    long length = resultSet.getLong(1);
+                    if (resultSet.wasNull()) {
+                        return null;
+                    }
+                    return new BlobInputStream(chunkQuery, primaryKey, length, chunkSize);
+                }
+                finally {
+                    resultSet.close();
+                }
+            }
+            finally {
+                connection.getStatementCache().release(statement);
+            }
+        }
+        catch (SQLException e) {
+            throw new DataConnectionException("Could not open the BLOB " + field + " of " + clazz.getSimpleName(), e);
+        }
+        finally {
+            DataConnectionManager.releaseConnection(connection);
+        }
+    }
+
+    private BlobInputStream(String chunkQuery, Object primaryKey, long length, int chunkSize) {
+        this.chunkQuery = chunkQuery;
+        this.primaryKey = primaryKey;
+        this.length = length;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk[chunkPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int count) throws IOException {
+        if (offset < 0 || count < 0 || count > bytes.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (count == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int read = Math.min(count, chunk.length - chunkPosition);
+        System.arraycopy(chunk, chunkPosition, bytes, offset, read);
+        chunkPosition += read;
+        return read;
+    }
+
+    /**
+     * Skips over the passed in number of bytes without reading them from the database.
+     */
+    @Override
+    public long skip(long count) throws IOException {
+        if (count <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(count, length - getPosition());
+        long buffered = chunk.length - chunkPosition;
+        if (skipped <= buffered) {
+            chunkPosition += (int) skipped;
+        }
+        else {
+            position += chunk.length + skipped - buffered;
+            chunk = EMPTY;
+            chunkPosition = 0;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return chunk.length - chunkPosition;
+    }
+
+    private long getPosition() {
+        return position + chunkPosition;
+    }
+
+    /**
+     * Reads the next chunk if all of the current one has been read.
+     *
+     * @return false if the end of the value has been reached.
+     */
+    private boolean fill() throws IOException {
+        if (chunkPosition < chunk.length) {
+            return true;
+        }
+        position += chunk.length;
+        chunk = EMPTY;
+        chunkPosition = 0;
+        if (position >= length) {
+            return false;
+        }
+        chunk = readChunk(position, (int) Math.min(chunkSize, length - position));
+        return true;
+    }
+
+    private byte[] readChunk(long start, int count) throws IOException {
+        PooledConnection connection;
+        try {
+            connection = DataConnectionManager.acquireConnection(StatementType.SELECT);
+        }
+        catch (DataConnectionException e) {
+            throw new IOException("Could not read the BLOB", e);
+        }
+        try {
+            PreparedStatement statement = connection.getStatementCache().prepare(chunkQuery, false);
+            try {
+                // substr counts from 1.
+                statement.setLong(1, start + 1);
+                statement.setInt(2, count);
+                SqlExecutor.setParameter(statement, 3, primaryKey);
+                ResultSet resultSet = statement.executeQuery();
+                try {
+                    if (!resultSet.next() || resultSet.getLong(2) != length) {
+                        throw new IOException("The BLOB was changed or deleted while it was being read");
+                    }
+                    byte[] bytes = resultSet.getBytes(1);
+                    if (bytes == null || bytes.length != count) {
+                        throw new IOException("The BLOB was changed or deleted while it was being read");
+                    }
+                    return bytes;
+                }
+                finally {
+                    resultSet.close();
+                }
+            }
+            finally {
+                connection.getStatementCache().release(statement);
+            }
+        }
+        catch (SQLException e) {
+            throw new IOException("Could not read the BLOB", e);
+        }
+        finally {
+            DataConnectionManager.releaseConnection(connection);
+        }
+    }
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final String chunkQuery;
+    private final Object primaryKey;
+    private final long length;
+    private final int chunkSize;
+    /** The offset of the current chunk in the value. */
+    private long position;
+    private byte[] chunk = EMPTY;
+    private int chunkPosition;
+}
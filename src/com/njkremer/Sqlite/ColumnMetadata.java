@@ -0,0 +1,166 @@
+package com.njkremer.Sqlite;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.njkremer.Sqlite.Annotations.AutoIncrement;
+import com.njkremer.Sqlite.Annotations.PrimaryKey;
+import com.njkremer.Sqlite.utils.SqliteUtils;
+
+/**
+ * Describes a single field of a POJO that "maps" to a column of a database table, along with the getter and setter
+ * that are used to read and write it through a {@linkplain PropertyAccessor}. Instances are created once per class by
+ * {@linkplain EntityMetadata} and are immutable.
+ */
+final class ColumnMetadata {
+
+    ColumnMetadata(Class<?> clazz, Field field) {
+        this.field = field;
+        name = field.getName();
+        type = field.getType();
+        primaryKey = field.isAnnotationPresent(PrimaryKey.class);
+        autoIncrement = field.isAnnotationPresent(AutoIncrement.class);
+
+        String getterName = (type == Boolean.class ? "is" : "get") + SqliteUtils.capitalize(name);
+        getter = findMethod(clazz, getterName);
+        misnamedBooleanGetter = getter == null && type == Boolean.class && findMethod(clazz, "get" + SqliteUtils.capitalize(name)) != null;
+        setter = findMethod(clazz, "set" + SqliteUtils.capitalize(name), type);
+        accessor = PropertyAccessorFactory.create(clazz, getter, setter);
+        converter = TypeConverters.forType(type);
+    }
+
+    /**
+     * Reads the value of this column off of the passed in object using its getter.
+     *
+     * @param object The object to read the value from.
+     * @return The value of the field.
+     * @throws DataConnectionException
+     */
+    Object getValue(Object object) throws DataConnectionException {
+        if (getter == null) {
+            throw new DataConnectionException(String.format("No getter could be found for the field %s on %s", name, field.getDeclaringClass()));
+        }
+        try {
+            return accessor.get(object);
+        }
+        catch (Exception e) {
+            throw new DataConnectionException(String.format("Could not get the value of the field %s", name), e);
+        }
+    }
+
+    /**
+     * Reads the value of this column off of the passed in object and binds it to a parameter of a statement with the
+     * column's {@linkplain TypeConverter}.
+     *
+     * @param statement The statement to bind the value to.
+     * @param index The index of the parameter, starting at 1.
+     * @param object The object to read the value from.
+     * @throws SQLException
+     * @throws DataConnectionException If the value can't be read or there's no converter for the column's type.
+     */
+    @SuppressWarnings("unchecked")
+    void bind(PreparedStatement statement, int index, Object object) throws SQLException, DataConnectionException {
+        Object value = getValue(object);
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+        }
+        else if (converter == null) {
+            throw new DataConnectionException(String.format("No TypeConverter is registered for the type %s of the field %s on %s", type.getName(), name, field.getDeclaringClass().getName()));
+        }
+        else {
+            ((TypeConverter<Object>) converter).bind(statement, index, value);
+        }
+    }
+
+    /**
+     * Sets the value of this column on the passed in object using its setter.
+     *
+     * @param object The object to set the value on.
+     * @param value The value to set.
+     * @throws DataConnectionException
+     */
+    void setValue(Object object, Object value) throws DataConnectionException {
+        if (setter == null) {
+            throw new DataConnectionException(String.format("No setter could be found for the field %s on %s", name, field.getDeclaringClass()));
+        }
+        try {
+            accessor.set(object, value);
+        }
+        catch (Exception e) {
+            throw new DataConnectionException(String.format("Could not set the value of the field %s", name), e);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    Field getField() {
+        return field;
+    }
+
+    Method getGetter() {
+        return getter;
+    }
+
+    Method getSetter() {
+        return setter;
+    }
+
+    /**
+     * @return The {@linkplain TypeConverter} of the column's type, or null if there isn't one.
+     */
+    TypeConverter<?> getConverter() {
+        return converter;
+    }
+
+    /**
+     * @return The {@linkplain PropertyAccessor} used to call the getter and setter of this column.
+     */
+    PropertyAccessor getAccessor() {
+        return accessor;
+    }
+
+    boolean isPrimaryKey() {
+        return primaryKey;
+    }
+
+    boolean isAutoIncrement() {
+        return autoIncrement;
+    }
+
+    /**
+     * @return true if this is a {@linkplain Boolean} field that only has a getXXXX getter instead of the isXXXX getter
+     * that is required.
+     */
+    boolean hasMisnamedBooleanGetter() {
+        return misnamedBooleanGetter;
+    }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getDeclaredMethod(name, parameterTypes);
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private final Field field;
+    private final String name;
+    private final Class<?> type;
+    private final Method getter;
+    private final Method setter;
+    private final PropertyAccessor accessor;
+    private final TypeConverter<?> converter;
+    private final boolean primaryKey;
+    private final boolean autoIncrement;
+    private final boolean misnamedBooleanGetter;
+}
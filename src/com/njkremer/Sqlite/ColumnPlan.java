@@ -0,0 +1,291 @@
+package com.njkremer.Sqlite;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.njkremer.Sqlite.utils.SqliteUtils;
+
+/**
+ * Describes how to read the rows of a single query. A plan is built once from the {@linkplain ResultSetMetaData} of a
+ * {@linkplain ResultSet} and is then used for every row, so that each value is read by its column index with a
+ * reader that was picked up front, rather than by looking up the column name and checking its type for every cell.
+ *
+ * <p>Joined selects can return more than one column with the same name. When reading into an object the columns
+ * that the driver reports as belonging to another table are skipped, and if the name is still ambiguous the first
+ * column wins. When reading into a {@linkplain Map} the first column keeps its plain name and any later column with
+ * the same name is keyed by <code>table.column</code> (or by its name followed by its index, if the table isn't
+ * known).
+ */
+final class ColumnPlan {
+
+    /**
+     * Builds a plan that reads each row into an object of the class described by the passed in metadata.
+     *
+     * @param metadata The metadata of the class being read.
+     * @param resultSetMetaData The metadata of the result set being read.
+     * @return A {@linkplain ColumnPlan} for the result set.
+     * @throws SQLException
+     * @throws DataConnectionException If a column doesn't map to a field with a setter.
+     */
+    static ColumnPlan forEntity(EntityMetadata metadata, ResultSetMetaData resultSetMetaData) throws SQLException, DataConnectionException {
+        String className = metadata.getEntityClass().getName();
+        int columnCount = resultSetMetaData.getColumnCount();
+        List<ColumnReader> readers = new ArrayList<ColumnReader>(columnCount);
+        Set<String> mappedColumns = new HashSet<String>();
+        ColumnReader primaryKeyReader = null;
+
+        for (int i = 1; i <= columnCount; i++) {
+            String columnName = resultSetMetaData.getColumnName(i);
+            String tableName = getTableName(resultSetMetaData, i);
+            int dot = columnName.lastIndexOf('.');
+            if (dot != -1) {
+                tableName = columnName.substring(0, dot);
+                columnName = columnName.substring(dot + 1);
+            }
+            if (tableName != null && !tableName.equalsIgnoreCase(metadata.getTableName())) {
+                continue;
+            }
+
+            ColumnMetadata column = metadata.getColumn(columnName);
+            if (column == null) {
+                throw new DataConnectionException(String.format("No field could be found on %s for the column %s", className, columnName));
+            }
+            if (column.getSetter() == null) {
+                throw new DataConnectionException(String.format("No setter could be found for the field %s on %s", columnName, className));
+            }
+            if (column.getConverter() == null) {
+                throw new DataConnectionException(String.format("No TypeConverter is registered for the type %s of the field %s on %s", column.getType().getName(), columnName, className));
+            }
+            if (mappedColumns.add(columnName)) {
+                readers.add(createReader(column, i));
+                if (column.isPrimaryKey()) {
+                    primaryKeyReader = createPrimaryKeyReader(i);
+                }
+            }
+        }
+        return new ColumnPlan(readers.toArray(new ColumnReader[readers.size()]), null, primaryKeyReader);
+    }
+
+    /**
+     * Builds a plan that reads each row into a {@linkplain Map} of column name to value.
+     *
+     * @param resultSetMetaData The metadata of the result set being read. The types of the values are taken from the
+     * current row, so this should be called after the statement has been executed.
+     * @return A {@linkplain ColumnPlan} for the result set.
+     * @throws SQLException
+     */
+    static ColumnPlan forMap(ResultSetMetaData resultSetMetaData) throws SQLException {
+        int columnCount = resultSetMetaData.getColumnCount();
+        ColumnReader[] readers = new ColumnReader[columnCount];
+        String[] keys = new String[columnCount];
+        Set<String> usedKeys = new HashSet<String>();
+
+        for (int i = 1; i <= columnCount; i++) {
+            String key = resultSetMetaData.getColumnName(i);
+            if (!usedKeys.add(key)) {
+                String tableName = getTableName(resultSetMetaData, i);
+                key = tableName == null ? key + i : tableName + "." + key;
+                usedKeys.add(key);
+            }
+            keys[i - 1] = key;
+            readers[i - 1] = createMapReader(resultSetMetaData.getColumnTypeName(i), i);
+        }
+        return new ColumnPlan(readers, keys, null);
+    }
+
+    /**
+     * Reads the current row of the result set into the passed in object.
+     *
+     * @param object The object to set the values on.
+     * @param resultSet The result set positioned on the row to read.
+     * @throws SQLException
+     * @throws DataConnectionException
+     */
+    void read(Object object, ResultSet resultSet) throws SQLException, DataConnectionException {
+        for (ColumnReader reader : readers) {
+            reader.read(object, resultSet);
+        }
+    }
+
+    /**
+     * Reads just the primary key of the current row, so that a row whose object is already in memory doesn't have to
+     * be read again. The plan must have been created with {@linkplain #forEntity(EntityMetadata, ResultSetMetaData)}.
+     *
+     * @param resultSet The result set positioned on the row to read.
+     * @return The {@linkplain PrimaryKeyCache#normalize(Object) normalized} primary key, or null if the class doesn't
+     * have a primary key or it isn't one of the columns of the result set.
+     * @throws SQLException
+     * @throws DataConnectionException
+     */
+    Object readPrimaryKey(ResultSet resultSet) throws SQLException, DataConnectionException {
+        return primaryKeyReader == null ? null : PrimaryKeyCache.normalize(primaryKeyReader.readValue(resultSet));
+    }
+
+    /**
+     * Reads the current row of the result set into a {@linkplain Map}. The plan must have been created with
+     * {@linkplain #forMap(ResultSetMetaData)}.
+     *
+     * @param resultSet The result set positioned on the row to read.
+     * @return A {@linkplain Map} of column name to value.
+     * @throws SQLException
+     * @throws DataConnectionException
+     */
+    Map<String, Object> readMap(ResultSet resultSet) throws SQLException, DataConnectionException {
+        Map<String, Object> map = new HashMap<String, Object>(keys.length * 2);
+        for (int i = 0; i < readers.length; i++) {
+            map.put(keys[i], readers[i].readValue(resultSet));
+        }
+        return map;
+    }
+
+    private ColumnPlan(ColumnReader[] readers, String[] keys, ColumnReader primaryKeyReader) {
+        this.readers = readers;
+        this.keys = keys;
+        this.primaryKeyReader = primaryKeyReader;
+    }
+
+    private static String getTableName(ResultSetMetaData resultSetMetaData, int index) {
+        try {
+            String tableName = resultSetMetaData.getTableName(index);
+            return SqliteUtils.isEmpty(tableName) ? null : tableName;
+        }
+        catch (SQLException e) {
+            // Not every build of SQLite keeps track of the table a column came from.
+            return null;
+        }
+    }
+
+    private static ColumnReader createReader(final ColumnMetadata column, final int index) {
+        final PropertyAccessor accessor = column.getAccessor();
+        Class<?> type = column.getType();
+
+        // Primitive fields go straight from the result set into the setter without being boxed.
+        if (type == Integer.TYPE) {
+            return new ColumnReader(index) {
+                void read(Object object, ResultSet resultSet) throws SQLException {
+                    accessor.setInt(object, resultSet.getInt(index));
+                }
+            };
+        }
+        if (type == Long.TYPE) {
+            return new ColumnReader(index) {
+                void read(Object object, ResultSet resultSet) throws SQLException {
+                    accessor.setLong(object, resultSet.getLong(index));
+                }
+            };
+        }
+        if (type == Double.TYPE) {
+            return new ColumnReader(index) {
+                void read(Object object, ResultSet resultSet) throws SQLException {
+                    accessor.setDouble(object, resultSet.getDouble(index));
+                }
+            };
+        }
+        if (type == Float.TYPE) {
+            return new ColumnReader(index) {
+                void read(Object object, ResultSet resultSet) throws SQLException {
+                    accessor.setFloat(object, resultSet.getFloat(index));
+                }
+            };
+        }
+        if (type == Boolean.TYPE) {
+            return new ColumnReader(index) {
+                void read(Object object, ResultSet resultSet) throws SQLException {
+                    accessor.setBoolean(object, resultSet.getBoolean(index));
+                }
+            };
+        }
+
+        final TypeConverter<?> converter = column.getConverter();
+        return new ColumnReader(index) {
+            void read(Object object, ResultSet resultSet) throws SQLException, DataConnectionException {
+                column.setValue(object, converter.read(resultSet, index));
+            }
+        };
+    }
+
+    private static ColumnReader createPrimaryKeyReader(final int index) {
+        return new ColumnReader(index) {
+            Object readValue(ResultSet resultSet) throws SQLException, DataConnectionException {
+                return resultSet.getObject(index);
+            }
+        };
+    }
+
+    private static ColumnReader createMapReader(String columnType, final int index) {
+        if ("text".equals(columnType)) {
+            return new ColumnReader(index) {
+                Object readValue(ResultSet resultSet) throws SQLException, DataConnectionException {
+                    return resultSet.getString(index);
+                }
+            };
+        }
+        if ("float".equals(columnType)) {
+            return new ColumnReader(index) {
+                Object readValue(ResultSet resultSet) throws SQLException, DataConnectionException {
+                    double value = resultSet.getDouble(index);
+                    return resultSet.wasNull() ? null : Double.valueOf(value);
+                }
+            };
+        }
+        if ("integer".equals(columnType)) {
+            return new ColumnReader(index) {
+                Object readValue(ResultSet resultSet) throws SQLException, DataConnectionException {
+                    long value = resultSet.getLong(index);
+                    if (resultSet.wasNull()) {
+                        return null;
+                    }
+                    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                        return Long.valueOf(value);
+                    }
+                    return Integer.valueOf((int) value);
+                }
+            };
+        }
+        if ("blob".equals(columnType)) {
+            return new ColumnReader(index) {
+                Object readValue(ResultSet resultSet) throws SQLException, DataConnectionException {
+                    return resultSet.getBytes(index);
+                }
+            };
+        }
+        // The column was null in the first row so its type isn't known, let the driver decide for every row.
+        return new ColumnReader(index) {
+            Object readValue(ResultSet resultSet) throws SQLException, DataConnectionException {
+                return resultSet.getObject(index);
+            }
+        };
+    }
+
+    /**
+     * Reads a single column of the current row, either returning it or setting it on an object.
+     */
+    private static class ColumnReader {
+
+        ColumnReader(int index) {
+            this.index = index;
+        }
+
+        Object readValue(ResultSet resultSet) throws SQLException, DataConnectionException {
+            return null;
+        }
+
+        void read(Object object, ResultSet resultSet) throws SQLException, DataConnectionException {
+            throw new IllegalStateException("Column " + index + " can only be read as a value");
+        }
+
+        final int index;
+    }
+
+    private final ColumnReader[] readers;
+    private final String[] keys;
+    private final ColumnReader primaryKeyReader;
+
+}
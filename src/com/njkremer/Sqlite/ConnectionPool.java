@@ -0,0 +1,394 @@
+package com.njkremer.Sqlite;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Hands out the connections that {@linkplain SqlExecutor} runs its statements on, each with its own
+ * {@linkplain StatementCache}, and manages the transactions made on them.
+ *
+ * <p>A pool is either <i>shared</i>, where every statement from every thread runs on the one connection (how the ORM
+ * has always worked), or <i>pooled</i>, where the database is put in WAL journal mode and there is a fixed number of
+ * read only connections for selects plus a single writer connection for everything else. In WAL mode readers don't
+ * block the writer or each other, so selects can run on as many threads as there are readers. Statements on the
+ * writer (which is the only connection of a shared pool) are serialized through a lock so SQLite never has to fail a
+ * write because the database is busy, and so a transaction only ever contains the statements of the thread that
+ * began it.
+ *
+ * <p>A thread that already has the writer also runs its selects on the writer, so it sees its own changes, and a
+ * thread that already has a reader gets the same reader back for nested selects rather than waiting on another one.
+ * A transaction holds on to the writer until it's committed or rolled back, so every statement run by the thread in
+ * the meantime is part of it.
+ */
+final class ConnectionPool {
+
+    /**
+     * Creates a pool where every statement runs on the passed in connection.
+     *
+     * @param connection The connection to use.
+     * @param statementCacheSize The size of the statement cache of the connection.
+     * @return A shared {@linkplain ConnectionPool}.
+     */
+    static ConnectionPool shared(Connection connection, int statementCacheSize) {
+        return new ConnectionPool(new PooledConnection(connection, statementCacheSize), null);
+    }
+
+    /**
+     * Opens a pool of a writer connection and the given number of read only connections to the database, putting the
+     * database in WAL journal mode.
+     *
+     * @param url The JDBC url of the database.
+     * @param readerCount The number of read only connections to open.
+     * @param busyTimeout How long, in milliseconds, a connection waits on a locked database before failing.
+     * @param statementCacheSize The size of the statement cache of each connection.
+     * @return A pooled {@linkplain ConnectionPool}.
+     * @throws SQLException
+     */
+    static ConnectionPool open(String url, int readerCount, int busyTimeout, int statementCacheSize) throws SQLException {
+        Connection writer = DriverManager.getConnection(url);
+        List<Connection> opened = new ArrayList<Connection>();
+        opened.add(writer);
+        try {
+            writer.setAutoCommit(true);
+            setBusyTimeout(writer, busyTimeout);
+            enableWriteAheadLog(writer);
+
+            BlockingQueue<PooledConnection> readers = new ArrayBlockingQueue<PooledConnection>(readerCount);
+            SQLiteConfig readerConfig = new SQLiteConfig();
+            readerConfig.setReadOnly(true);
+            for (int i = 0; i < readerCount; i++) {
+                Connection reader = readerConfig.createConnection(url);
+                opened.add(reader);
+                setBusyTimeout(reader, busyTimeout);
+                readers.add(new PooledConnection(reader, statementCacheSize));
+            }
+            return new ConnectionPool(new PooledConnection(writer, statementCacheSize), readers);
+        }
+        catch (SQLException e) {
+            for (Connection connection : opened) {
+                close(connection);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets a connection to run a statement of the passed in type on. The connection must be given back with
+     * {@linkplain #release(PooledConnection)} once the statement and its results are no longer being used.
+     *
+     * @param statementType The type of statement that is going to be run.
+     * @return A {@linkplain PooledConnection}.
+     * @throws DataConnectionException If the thread is interrupted while waiting on a connection.
+     */
+    PooledConnection acquire(StatementType statementType) throws DataConnectionException {
+        try {
+            if (readers == null || statementType != StatementType.SELECT || writerLock.isHeldByCurrentThread()) {
+                writerLock.lockInterruptibly();
+                return writer;
+            }
+            ThreadState state = threadState.get();
+            if (state.reader == null) {
+                state.reader = readers.take();
+            }
+            state.readerDepth++;
+            return state.reader;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataConnectionException("Interrupted while waiting on a database connection", e);
+        }
+    }
+
+    /**
+     * Gives back a connection obtained from {@linkplain #acquire(StatementType)}.
+     *
+     * @param connection The connection that is no longer being used.
+     */
+    void release(PooledConnection connection) {
+        if (connection == writer) {
+            writerLock.unlock();
+            return;
+        }
+        ThreadState state = threadState.get();
+        if (state.reader == connection && --state.readerDepth == 0) {
+            state.reader = null;
+            readers.add(connection);
+        }
+    }
+
+    /**
+     * Begins a transaction on the writer for the current thread, or a savepoint if the thread is already in a
+     * transaction. The writer is held until the matching {@linkplain #commit()} or {@linkplain #rollback()}.
+     *
+     * @throws DataConnectionException
+     */
+    void begin() throws DataConnectionException {
+        PooledConnection connection = acquire(StatementType.UPDATE);
+        ThreadState state = threadState.get();
+        try {
+            execute(state.transactionDepth == 0 ? BEGIN : String.format(SAVEPOINT, state.transactionDepth));
+            state.transactionDepth++;
+        }
+        catch (SQLException e) {
+            release(connection);
+            throw new DataConnectionException("Could not begin the transaction", e);
+        }
+    }
+
+    /**
+     * Commits the current thread's innermost transaction, or releases its savepoint if it's nested. If the commit
+     * fails the transaction is rolled back.
+     *
+     * @throws DataConnectionException
+     */
+    void commit() throws DataConnectionException {
+        ThreadState state = checkInTransaction("commit");
+        int level = state.transactionDepth - 1;
+        try {
+            execute(level == 0 ? COMMIT : String.format(RELEASE, level));
+        }
+        catch (SQLException e) {
+            try {
+                rollback(level);
+            }
+            catch (SQLException rollbackException) {
+                logger.error("Could not roll back the transaction after it failed to commit", rollbackException);
+            }
+            throw new DataConnectionException("Could not commit the transaction", e);
+        }
+        finally {
+            state.transactionDepth--;
+            release(writer);
+        }
+    }
+
+    /**
+     * Rolls back the current thread's innermost transaction, or just the changes made since its savepoint if it's
+     * nested.
+     *
+     * @throws DataConnectionException
+     */
+    void rollback() throws DataConnectionException {
+        ThreadState state = checkInTransaction("roll back");
+        try {
+            rollback(state.transactionDepth - 1);
+        }
+        catch (SQLException e) {
+            throw new DataConnectionException("Could not roll back the transaction", e);
+        }
+        finally {
+            state.transactionDepth--;
+            release(writer);
+        }
+    }
+
+    /**
+     * @return true if the current thread is in a transaction.
+     */
+    boolean isInTransaction() {
+        return threadState.get().transactionDepth > 0;
+    }
+
+    /**
+     * @return The connection that writes are made on.
+     */
+    Connection getWriterConnection() {
+        return writer.getConnection();
+    }
+
+    /**
+     * @return true if this pool has separate reader connections.
+     */
+    boolean isPooled() {
+        return readers != null;
+    }
+
+    void setStatementCacheSize(int size) {
+        for (PooledConnection connection : getConnections()) {
+            connection.getStatementCache().setCapacity(size);
+        }
+    }
+
+    long getStatementCacheHits() {
+        long hits = 0;
+        for (PooledConnection connection : getConnections()) {
+            hits += connection.getStatementCache().getHits();
+        }
+        return hits;
+    }
+
+    long getStatementCacheMisses() {
+        long misses = 0;
+        for (PooledConnection connection : getConnections()) {
+            misses += connection.getStatementCache().getMisses();
+        }
+        return misses;
+    }
+
+    /**
+     * Sets the busy timeout of every connection in the pool.
+     *
+     * @param busyTimeout How long, in milliseconds, a connection waits on a locked database before failing.
+     * @throws SQLException
+     */
+    void setBusyTimeout(int busyTimeout) throws SQLException {
+        for (PooledConnection connection : getConnections()) {
+            setBusyTimeout(connection.getConnection(), busyTimeout);
+        }
+    }
+
+    /**
+     * Closes the cached statements and the connections of the pool.
+     */
+    void close() {
+        for (PooledConnection connection : getConnections()) {
+            connection.getStatementCache().clear();
+            close(connection.getConnection());
+        }
+    }
+
+    private ConnectionPool(PooledConnection writer, BlockingQueue<PooledConnection> readers) {
+        this.writer = writer;
+        this.readers = readers;
+        allReaders = readers == null ? new ArrayList<PooledConnection>() : new ArrayList<PooledConnection>(readers);
+    }
+
+    private ThreadState checkInTransaction(String action) throws DataConnectionException {
+        ThreadState state = threadState.get();
+        if (state.transactionDepth == 0) {
+            throw new DataConnectionException(String.format("There is no transaction to %s", action));
+        }
+        return state;
+    }
+
+    private void rollback(int level) throws SQLException {
+        if (level == 0) {
+            execute(ROLLBACK);
+        }
+        else {
+            // Rolling back to a savepoint leaves it on the stack, so it needs to be released as well.
+            execute(String.format(ROLLBACK_TO, level));
+            execute(String.format(RELEASE, level));
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        StatementCache statementCache = writer.getStatementCache();
+        PreparedStatement statement = statementCache.prepare(sql, false);
+        try {
+            statement.execute();
+        }
+        finally {
+            statementCache.release(statement);
+        }
+    }
+
+    private List<PooledConnection> getConnections() {
+        List<PooledConnection> connections = new ArrayList<PooledConnection>(allReaders);
+        connections.add(writer);
+        return connections;
+    }
+
+    /**
+     * The sqlite-jdbc driver only exposes the busy timeout through {@linkplain Statement#setQueryTimeout(int)}, which
+     * sets it for the whole connection in whole seconds, so the timeout is rounded up to the next second.
+     */
+    private static void setBusyTimeout(Connection connection, int busyTimeout) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.setQueryTimeout((busyTimeout + 999) / 1000);
+        }
+        finally {
+            statement.close();
+        }
+    }
+
+    private static void enableWriteAheadLog(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet resultSet = statement.executeQuery("pragma journal_mode = wal;");
+            String journalMode = resultSet.next() ? resultSet.getString(1) : null;
+            resultSet.close();
+            if (!"wal".equalsIgnoreCase(journalMode)) {
+                logger.warn(String.format("Could not put the database in WAL journal mode, it's using %s instead", journalMode));
+            }
+        }
+        finally {
+            statement.close();
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        }
+        catch (SQLException e) {
+            logger.warn("Failed to close a database connection", e);
+        }
+    }
+
+    /**
+     * A connection along with the cache of the statements prepared on it.
+     */
+    static final class PooledConnection {
+
+        PooledConnection(Connection connection, int statementCacheSize) {
+            this.connection = connection;
+            statementCache = new StatementCache(connection, statementCacheSize);
+        }
+
+        Connection getConnection() {
+            return connection;
+        }
+
+        StatementCache getStatementCache() {
+            return statementCache;
+        }
+
+        private final Connection connection;
+        private final StatementCache statementCache;
+    }
+
+    /**
+     * The reader a thread is using and how many statements it's using it for, along with how deeply nested the
+     * thread's transaction is.
+     */
+    private static final class ThreadState {
+        PooledConnection reader;
+        int readerDepth;
+        int transactionDepth;
+    }
+
+    private final PooledConnection writer;
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private final BlockingQueue<PooledConnection> readers;
+    private final List<PooledConnection> allReaders;
+    private final ThreadLocal<ThreadState> threadState = new ThreadLocal<ThreadState>() {
+        protected ThreadState initialValue() {
+            return new ThreadState();
+        }
+    };
+
+    // "begin immediate" takes the write lock up front, so a transaction can't fail part way through because a
+    // connection outside of this pool is writing.
+    private static final String BEGIN = "begin immediate;";
+    private static final String COMMIT = "commit;";
+    private static final String ROLLBACK = "rollback;";
+    private static final String SAVEPOINT = "savepoint level%d;";
+    private static final String RELEASE = "release savepoint level%d;";
+    private static final String ROLLBACK_TO = "rollback to savepoint level%d;";
+
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class);
+}
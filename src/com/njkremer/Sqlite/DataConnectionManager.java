@@ -4,22 +4,37 @@ import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import com.njkremer.Sqlite.ConnectionPool.PooledConnection;
+
 /**
  * This is the main class used for connecting to the SQLite database. Use the {@linkplain #init(String)} or
  * {@linkplain #init(String, String)} methods to specify the path to the database file.
+ * 
+ * <p>By default every query runs on a single connection. Applications that query from many threads can instead use
+ * {@linkplain #initPooled(String, int)} or {@linkplain #initPooled(String, String, int)}, which put the database in
+ * WAL journal mode and run selects on a pool of read only connections while inserts, updates, and deletes are
+ * serialized on a single writer connection.
  */
 public class DataConnectionManager {
     /**
-     * Gets the raw SQL Connection.
+     * Gets the raw SQL Connection. When the connections are pooled, this is the connection that writes are made on.
      * 
      * @return The raw {@linkplain Connection} to the database.
      */
     public static Connection getConnection() {
-        return connection;
+        ConnectionPool pool = DataConnectionManager.pool;
+        return pool == null ? null : pool.getWriterConnection();
     }
 
     /**
@@ -62,12 +77,601 @@ public class DataConnectionManager {
      * @param loggerLevel The level at which the ORM should log messages to console.
      */
     public static void init(String databaseName, String pathToDatabase, Level loggerLevel) {
+        open(getUrl(databaseName, pathToDatabase), loggerLevel);
+    }
+
+    /**
+     * Initializes the database connection to a new, empty database that's only kept in memory and is thrown away
+     * when the connection is {@linkplain #close() closed}, which is mostly useful for tests and benchmarks. An in
+     * memory database can't be shared between connections, so it can't be pooled. Like the init methods, this does
+     * nothing if the database has already been initialized. Logging defaults to
+     * {@linkplain org.apache.log4j.Level.WARN}
+     */
+    public static void initInMemory() {
+        open(IN_MEMORY_URL, DEFAULT_LOGGER_LEVEL);
+    }
+
+    /**
+     * Initializes a pool of connections to the database with the passed in relative path (starting at the user.dir)
+     * of the java program. See {@linkplain #initPooled(String, String, int)}.
+     * 
+     * @param databaseName The path relative to java property <code>user.dir</code> to the database.
+     * @param readerConnections The number of read only connections to open for selects.
+     * @throws DataConnectionException If the connections can't be opened.
+     */
+    public static void initPooled(String databaseName, int readerConnections) throws DataConnectionException {
+        initPooled(databaseName, System.getProperty("user.dir"), readerConnections);
+    }
+
+    /**
+     * Initializes a pool of connections to the database with the passed in absolute path to the database and
+     * database name. The database is put in WAL journal mode, selects run on one of the read only connections, and
+     * inserts, updates, and deletes are run one at a time on a single writer connection. Logging defaults to
+     * {@linkplain org.apache.log4j.Level.WARN}
+     * 
+     * <p>Like the init methods, this does nothing if the database has already been initialized. Call
+     * {@linkplain #close()} first to switch to a pool.
+     * 
+     * @param databaseName The filename of the database.
+     * @param pathToDatabase The absolute path to the database.
+     * @param readerConnections The number of read only connections to open for selects.
+     * @throws DataConnectionException If the connections can't be opened.
+     */
+    public static void initPooled(String databaseName, String pathToDatabase, int readerConnections) throws DataConnectionException {
+        if (readerConnections < 1) {
+            throw new IllegalArgumentException("At least one reader connection is needed");
+        }
+        synchronized (DataConnectionManager.class) {
+            if (pool != null) {
+                return;
+            }
+            try {
+                Class.forName("org.sqlite.JDBC");
+                pool = ConnectionPool.open(getUrl(databaseName, pathToDatabase), readerConnections, busyTimeout, statementCacheSize);
+            }
+            catch (ClassNotFoundException e) {
+                throw new DataConnectionException("The sqlite jdbc driver could not be found", e);
+            }
+            catch (SQLException e) {
+                throw new DataConnectionException("Could not open the pool of database connections", e);
+            }
+        }
+        initializeLogging(DEFAULT_LOGGER_LEVEL);
+    }
+
+    /**
+     * Closes the connection(s) to the database. After this the database can be initialized again, for instance to
+     * switch between a single connection and a pool of connections.
+     * 
+     * @throws IllegalStateException If write behind is on and the current thread is in a transaction, since the
+     * queued writes can't be written until the transaction ends.
+     */
+    public static void close() {
+        synchronized (DataConnectionManager.class) {
+            try {
+                disableWriteBehind();
+            }
+            catch (DataConnectionException e) {
+                logger.error("Could not write the queued writes before closing", e);
+            }
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+            primaryKeyCache.invalidateAll();
+            queryCache.invalidateAll();
+            if (defaultAsyncExecutor != null) {
+                defaultAsyncExecutor.shutdown();
+                defaultAsyncExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Begins a transaction on the current thread. Every statement the thread runs until the transaction is committed
+     * or rolled back is part of the transaction, and other threads can't write to the database in the meantime.
+     * 
+     * <p>Transactions can be nested, in which case the nested transaction is a savepoint that can be committed or
+     * rolled back on its own, and every call to this method must be matched by a call to
+     * {@linkplain #commitTransaction()} or {@linkplain #rollbackTransaction()}. See
+     * {@linkplain SqlStatement#inTransaction(TransactionWork)} for a way to do this automatically.
+     * 
+     * @throws DataConnectionException If the connection isn't initialized or the transaction couldn't be started.
+     */
+    public static void beginTransaction() throws DataConnectionException {
+        getPool().begin();
+    }
+
+    /**
+     * Commits the current thread's transaction started with {@linkplain #beginTransaction()}. If this is a nested
+     * transaction its changes become part of the outer transaction. If the commit fails, the transaction is rolled
+     * back.
+     * 
+     * @throws DataConnectionException If there is no transaction or it couldn't be committed.
+     */
+    public static void commitTransaction() throws DataConnectionException {
+        ConnectionPool pool = getPool();
+        try {
+            pool.commit();
+        }
+        finally {
+            transactionEnded(pool);
+        }
+    }
+
+    /**
+     * Rolls back the current thread's transaction started with {@linkplain #beginTransaction()}. If this is a nested
+     * transaction only the changes made since it began are rolled back.
+     * 
+     * @throws DataConnectionException If there is no transaction or it couldn't be rolled back.
+     */
+    public static void rollbackTransaction() throws DataConnectionException {
+        ConnectionPool pool = getPool();
+        try {
+            pool.rollback();
+        }
+        finally {
+            transactionEnded(pool);
+        }
+    }
+
+    /**
+     * @return true if the current thread is in a transaction started with {@linkplain #beginTransaction()}.
+     */
+    public static boolean isInTransaction() {
+        ConnectionPool pool = DataConnectionManager.pool;
+        return pool != null && pool.isInTransaction();
+    }
+
+    /**
+     * Sets how long, in milliseconds, a connection waits on a locked database before the statement fails. The
+     * sqlite-jdbc driver only supports whole seconds, so this is rounded up to the next second. Defaults to 3000.
+     * 
+     * @param millis The busy timeout in milliseconds.
+     * @throws DataConnectionException If the timeout couldn't be set on the open connections.
+     */
+    public static void setBusyTimeout(int millis) throws DataConnectionException {
+        if (millis < 0) {
+            throw new IllegalArgumentException("The busy timeout can't be negative");
+        }
+        busyTimeout = millis;
+        ConnectionPool pool = DataConnectionManager.pool;
+        if (pool != null) {
+            try {
+                pool.setBusyTimeout(millis);
+            }
+            catch (SQLException e) {
+                throw new DataConnectionException("Could not set the busy timeout", e);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of prepared statements that are kept open and reused per connection. Statements are
+     * keyed by their SQL, so this should be at least the number of distinct queries an application runs frequently.
+     * Defaults to 64.
+     * 
+     * @param size The number of statements to cache, 0 turns statement caching off.
+     */
+    public static void setStatementCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The statement cache size can't be negative");
+        }
+        statementCacheSize = size;
+        ConnectionPool pool = DataConnectionManager.pool;
+        if (pool != null) {
+            pool.setStatementCacheSize(size);
+        }
+    }
+
+    /**
+     * @return The number of times a statement was reused out of the prepared statement cache.
+     */
+    public static long getStatementCacheHits() {
+        ConnectionPool pool = DataConnectionManager.pool;
+        return pool == null ? 0 : pool.getStatementCacheHits();
+    }
+
+    /**
+     * @return The number of times a statement had to be prepared because it wasn't in the prepared statement cache.
+     */
+    public static long getStatementCacheMisses() {
+        ConnectionPool pool = DataConnectionManager.pool;
+        return pool == null ? 0 : pool.getStatementCacheMisses();
+    }
+
+    /**
+     * Sets the maximum number of rows looked up with {@linkplain SqlStatement#findById(Class, Object)} that are kept
+     * in memory, so looking them up again doesn't have to go to the database. The cached rows of a table are thrown
+     * away whenever the ORM writes to the table, but writes made to the database by anything else aren't seen, so
+     * this should only be turned on if the ORM is the only thing writing to the database. Defaults to 0, which turns
+     * the cache off.
+     * 
+     * @param size The number of rows to cache, 0 turns the cache off.
+     */
+    public static void setPrimaryKeyCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The primary key cache size can't be negative");
+        }
+        primaryKeyCache.setCapacity(size);
+    }
+
+    /**
+     * @return The number of times a row was found in the primary key cache.
+     */
+    public static long getPrimaryKeyCacheHits() {
+        return primaryKeyCache.getHits();
+    }
+
+    /**
+     * @return The number of times a row wasn't found in the primary key cache and had to be read from the database.
+     */
+    public static long getPrimaryKeyCacheMisses() {
+        return primaryKeyCache.getMisses();
+    }
+
+    /**
+     * Sets the maximum number of query results from {@linkplain SqlExecutor#getList()},
+     * {@linkplain SqlExecutor#getCount()} and {@linkplain SqlExecutor#getColumns(ColumnExpression)} that are kept in
+     * memory, keyed by the SQL of the query and its values. The cached results of a query are thrown away whenever
+     * the ORM writes to one of its tables, including the joined ones, but like the primary key cache, writes made to
+     * the database by anything else aren't seen until the results expire, see
+     * {@linkplain #setQueryCacheTimeToLive(long)}. Results aren't cached inside of a transaction. Defaults to 0, which
+     * turns the cache off.
+     * 
+     * @param size The number of results to cache, 0 turns the cache off.
+     */
+    public static void setQueryCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The query cache size can't be negative");
+        }
+        queryCache.setCapacity(size);
+    }
+
+    /**
+     * Sets how long, in milliseconds, a query result is kept in the query cache before it's read from the database
+     * again. Defaults to 0, which keeps results until the ORM writes to one of their tables.
+     * 
+     * @param millis The time to live in milliseconds, 0 to never expire results.
+     */
+    public static void setQueryCacheTimeToLive(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("The query cache time to live can't be negative");
+        }
+        queryCache.setTimeToLive(millis);
+    }
+
+    /**
+     * @return The number of times a query result was found in the query cache.
+     */
+    public static long getQueryCacheHits() {
+        return queryCache.getHits();
+    }
+
+    /**
+     * @return The number of times a query result wasn't found in the query cache and had to be read from the
+     * database.
+     */
+    public static long getQueryCacheMisses() {
+        return queryCache.getMisses();
+    }
+
+    /**
+     * Sets how {@linkplain java.util.Date Date} fields are written to the database and how they're expected to be
+     * read back. The dates that are already in the database aren't converted, so this should be chosen before any
+     * dates are written. Defaults to {@linkplain DateStorage#ISO_TEXT}.
+     * 
+     * @param storage How to store dates.
+     */
+    public static void setDateStorage(DateStorage storage) {
+        if (storage == null) {
+            throw new IllegalArgumentException("The date storage can't be null");
+        }
+        dateStorage = storage;
+    }
+
+    /**
+     * @return How {@linkplain java.util.Date Date} fields are stored in the database.
+     */
+    public static DateStorage getDateStorage() {
+        return dateStorage;
+    }
+
+    /**
+     * Sets the number of objects from the same {@linkplain SqlExecutor#getList()} results that have a
+     * {@linkplain com.njkremer.Sqlite.Annotations.OneToMany OneToMany} relationship loaded together. When the
+     * relationship's getter is first called on one of the objects, the related objects of it and the next objects in
+     * the list that haven't loaded it yet are queried with a single <code>where fk in (...)</code>, rather than one
+     * query per object. Defaults to 25.
+     * 
+     * @param size The number of objects to load a relationship for at once, 1 loads it for just the object whose
+     * getter was called.
+     */
+    public static void setFaultingBatchSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The faulting batch size must be at least 1");
+        }
+        faultingBatchSize = size;
+    }
+
+    /**
+     * Turns on write behind, in which {@linkplain SqlExecutor#execute()} only queues inserts and updates, and a single
+     * writer thread writes them in batches, each in one transaction. With autocommit every write waits on its own
+     * commit, which for SQLite means a sync to disk, so batching many small writes into a transaction is much
+     * faster. A batch is committed once it has the maximum number of writes, or the maximum delay has passed since
+     * its first write was queued.
+     * 
+     * <p>Since the writes happen later, a query run right after an insert may not see it yet, and failed writes are
+     * only logged. {@linkplain SqlExecutor#executeAsync()} returns a future that completes once the write has been
+     * committed, or fails with the write's exception. {@linkplain #flushWriteBehind()} waits for everything that's
+     * been queued. The values of the columns of an insert or update are read when it's queued, but the objects in
+     * its {@linkplain com.njkremer.Sqlite.Annotations.OneToMany} relationships are only read and saved when the write
+     * runs, so those lists shouldn't be changed until then. Writes made in a transaction aren't queued, since they
+     * have to be part of the transaction.
+     * 
+     * <p>If write behind is already on, the writes queued so far are written before the new settings take effect.
+     * 
+     * @param maxBatchSize The most writes to commit in one transaction.
+     * @param maxDelayMillis The longest, in milliseconds, to wait for more writes after the first write of a batch.
+     * @param queueCapacity The most writes that can be waiting to be written. Once the queue is full, queueing a
+     * write blocks until there's room.
+     * @throws DataConnectionException If the thread is interrupted while waiting for the queued writes.
+     * @throws IllegalStateException If write behind is already on and the current thread is in a transaction.
+     */
+    public static void enableWriteBehind(int maxBatchSize, long maxDelayMillis, int queueCapacity) throws DataConnectionException {
+        if (maxBatchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The batch size and queue capacity must be at least 1");
+        }
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("The maximum delay can't be negative");
+        }
+        synchronized (DataConnectionManager.class) {
+            disableWriteBehind();
+            writeBehindQueue = new WriteBehindQueue(maxBatchSize, maxDelayMillis, queueCapacity);
+        }
+    }
+
+    /**
+     * Turns off write behind, after waiting for the queued writes to be written. Does nothing if write behind isn't
+     * on. This is also done by {@linkplain #close()}.
+     * 
+     * @throws DataConnectionException If the thread is interrupted while waiting for the queued writes.
+     * @throws IllegalStateException If write behind is on and the current thread is in a transaction, since the
+     * writer thread would wait for the transaction to end while this waits for the writer.
+     */
+    public static void disableWriteBehind() throws DataConnectionException {
+        WriteBehindQueue queue;
+        synchronized (DataConnectionManager.class) {
+            queue = writeBehindQueue;
+            if (queue == null) {
+                return;
+            }
+            checkNotInTransaction();
+            writeBehindQueue = null;
+        }
+        queue.close();
+    }
+
+    /**
+     * Waits until every insert and update that has been queued by write behind so far has been written, or has
+     * failed. Does nothing if write behind isn't on.
+     * 
+     * @throws DataConnectionException If the thread is interrupted while waiting.
+     * @throws IllegalStateException If write behind is on and the current thread is in a transaction, since the
+     * writer thread would wait for the transaction to end while this waits for the writer.
+     */
+    public static void flushWriteBehind() throws DataConnectionException {
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            checkNotInTransaction();
+            queue.flush();
+        }
+    }
+
+    /**
+     * @return The write behind queue, or null if write behind is off.
+     */
+    static WriteBehindQueue getWriteBehindQueue() {
+        return writeBehindQueue;
+    }
+
+    /**
+     * Sets the executor that the asynchronous methods of {@linkplain SqlExecutor}, such as
+     * {@linkplain SqlExecutor#getListAsync()}, run their statements on. Each statement gets its own connection on the
+     * thread that runs it, the same as if it had been run on a thread of the application, so the executor should
+     * have about as many threads as the statements it's expected to run at once: with
+     * {@linkplain #initPooled(String, int)} that's the number of readers, since writes run one at a time anyway. By
+     * default a pool of daemon threads, one per processor, is created the first time it's needed and shut down by
+     * {@linkplain #close()}. An executor that's passed in isn't shut down by the ORM.
+     * 
+     * @param executor The executor to run asynchronous statements on, or null to go back to the default one.
+     */
+    public static void setAsyncExecutor(ExecutorService executor) {
+        synchronized (DataConnectionManager.class) {
+            asyncExecutor = executor;
+        }
+    }
+
+    /**
+     * @return The executor asynchronous statements are run on, see {@linkplain #setAsyncExecutor(ExecutorService)}.
+     */
+    static ExecutorService getAsyncExecutor() {
+        synchronized (DataConnectionManager.class) {
+            if (asyncExecutor != null) {
+                return asyncExecutor;
+            }
+            if (defaultAsyncExecutor == null) {
+                int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+                defaultAsyncExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "sqlite-orm-async-" + asyncThreadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return defaultAsyncExecutor;
+        }
+    }
+
+    /**
+     * Registers a listener that's told about every statement the ORM runs from now on, see
+     * {@linkplain StatementListener}. Statements aren't timed at all while no listener is registered.
+     *
+     * @param listener The listener to register.
+     */
+    public static void addStatementListener(StatementListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("The listener can't be null");
+        }
+        statementListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener registered with {@linkplain #addStatementListener(StatementListener)}. Does nothing if it
+     * isn't registered.
+     *
+     * @param listener The listener to unregister.
+     */
+    public static void removeStatementListener(StatementListener listener) {
+        statementListeners.remove(listener);
+    }
+
+    /**
+     * Tells the listeners that a statement is about to be executed.
+     *
+     * @param type The type of the statement.
+     * @param query The SQL of the statement.
+     * @param parameters The values bound to the parameters of the statement.
+     * @return The event to pass to {@linkplain #statementFinished(StatementEvent, int, Throwable)}, or null if there
+     * are no listeners.
+     */
+    static StatementEvent statementStarting(StatementType type, String query, List<Object> parameters) {
+        if (statementListeners.isEmpty()) {
+            return null;
+        }
+        StatementEvent event = new StatementEvent(type, query, parameters);
+        for (StatementListener listener : statementListeners) {
+            try {
+                listener.beforeExecute(event);
+            }
+            catch (RuntimeException e) {
+                logger.error("A statement listener failed", e);
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Tells the listeners that a statement has finished. Does nothing if the event is null or has already finished.
+     *
+     * @param event The event returned by {@linkplain #statementStarting(StatementType, String, List)}.
+     * @param rowCount The number of rows that were read or changed.
+     * @param error The exception the statement failed with, or null.
+     */
+    static void statementFinished(StatementEvent event, int rowCount, Throwable error) {
+        if (event == null || !event.finish(rowCount, error)) {
+            return;
+        }
+        for (StatementListener listener : statementListeners) {
+            try {
+                listener.afterExecute(event);
+            }
+            catch (RuntimeException e) {
+                logger.error("A statement listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Gets a connection to run a statement of the passed in type on. SELECTs are given one of the read only
+     * connections when the connections are pooled, everything else is given the writer. The connection must be given
+     * back with {@linkplain #releaseConnection(PooledConnection)}.
+     * 
+     * @param statementType The type of statement that is going to be run.
+     * @return A {@linkplain PooledConnection}.
+     * @throws DataConnectionException If the connection isn't initialized.
+     */
+    static PooledConnection acquireConnection(StatementType statementType) throws DataConnectionException {
+        return getPool().acquire(statementType);
+    }
+
+    /**
+     * Gives back a connection obtained from {@linkplain #acquireConnection(StatementType)}.
+     * 
+     * @param connection The connection that is no longer being used.
+     */
+    static void releaseConnection(PooledConnection connection) {
+        ConnectionPool pool = DataConnectionManager.pool;
+        if (pool != null) {
+            pool.release(connection);
+        }
+    }
+
+    static PrimaryKeyCache getPrimaryKeyCache() {
+        return primaryKeyCache;
+    }
+
+    static QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    static int getFaultingBatchSize() {
+        return faultingBatchSize;
+    }
+
+    /**
+     * Called after the ORM writes to a table, to invalidate what's cached about it.
+     * 
+     * @param table The table that was written to.
+     */
+    static void tableChanged(String table) {
+        primaryKeyCache.invalidate(table);
+        queryCache.invalidate(table);
+        Session.tableChanged(table);
+    }
+
+    private DataConnectionManager() {
+        // to enforce static usage...
+    }
+
+    private static ConnectionPool getPool() throws DataConnectionException {
+        ConnectionPool pool = DataConnectionManager.pool;
+        if (pool == null) {
+            throw new DataConnectionException("Connection is not initialized");
+        }
+        return pool;
+    }
+
+    /**
+     * The writer thread of the write behind queue waits for the current thread's transaction to end, so the current
+     * thread can't wait for it in a transaction.
+     */
+    private static void checkNotInTransaction() {
+        if (isInTransaction()) {
+            throw new IllegalStateException("The write behind queue can't be waited on in a transaction, since its writes wait for the transaction to end");
+        }
+    }
+
+    /**
+     * What a transaction wrote is only visible to other connections once it's committed, while the caches may have
+     * been filled by them in the meantime, so everything is invalidated once a transaction ends.
+     */
+    private static void transactionEnded(ConnectionPool pool) {
+        if (!pool.isInTransaction()) {
+            primaryKeyCache.invalidateAll();
+            queryCache.invalidateAll();
+        }
+    }
+
+    private static void open(String url, Level loggerLevel) {
         try {
-            if (connection == null) {
+            if (pool == null) {
                 Class.forName("org.sqlite.JDBC");
-                String separator = File.separator;
-                connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s%s%s", pathToDatabase, separator, databaseName));
+                Connection connection = DriverManager.getConnection(url);
                 connection.setAutoCommit(true);
+                pool = ConnectionPool.shared(connection, statementCacheSize);
+                pool.setBusyTimeout(busyTimeout);
 
                 initializeLogging(loggerLevel);
             }
@@ -82,16 +686,39 @@ public class DataConnectionManager {
         }
     }
 
-    private DataConnectionManager() {
-        // to enforce static usage...
+    private static String getUrl(String databaseName, String pathToDatabase) {
+        return String.format("jdbc:sqlite:%s%s%s", pathToDatabase, File.separator, databaseName);
     }
 
     private static void initializeLogging(Level loggerLevel) {
-        BasicConfigurator.configure();
+        // The database can be initialized again after it's closed, so only add the console appender once.
+        if (!loggingConfigured) {
+            BasicConfigurator.configure();
+            loggingConfigured = true;
+        }
         Logger.getRootLogger().setLevel(loggerLevel);
     }
 
-    private static Connection connection;
+    private static volatile ConnectionPool pool;
 
     private static final Level DEFAULT_LOGGER_LEVEL = Level.WARN;
+    private static final String IN_MEMORY_URL = "jdbc:sqlite::memory:";
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    private static final int DEFAULT_BUSY_TIMEOUT = 3000;
+    private static final int DEFAULT_FAULTING_BATCH_SIZE = 25;
+
+    private static int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private static int busyTimeout = DEFAULT_BUSY_TIMEOUT;
+    private static volatile int faultingBatchSize = DEFAULT_FAULTING_BATCH_SIZE;
+    private static volatile DateStorage dateStorage = DateStorage.ISO_TEXT;
+    private static boolean loggingConfigured;
+    private static volatile WriteBehindQueue writeBehindQueue;
+    private static ExecutorService asyncExecutor;
+    private static ExecutorService defaultAsyncExecutor;
+    private static final AtomicInteger asyncThreadCount = new AtomicInteger();
+    private static final List<StatementListener> statementListeners = new CopyOnWriteArrayList<StatementListener>();
+    private static final PrimaryKeyCache primaryKeyCache = new PrimaryKeyCache(0);
+    private static final QueryCache queryCache = new QueryCache(0, 0);
+
+    private static final Logger logger = Logger.getLogger(DataConnectionManager.class);
 }
@@ -0,0 +1,23 @@
+package com.njkremer.Sqlite;
+
+import java.util.Date;
+
+/**
+ * How {@linkplain Date} fields are stored in the database, see
+ * {@linkplain DataConnectionManager#setDateStorage(DateStorage)}.
+ */
+public enum DateStorage {
+
+    /**
+     * As text in the form <code>yyyy-MM-dd'T'HH:mm:ss</code>, in the default time zone. This is readable in the
+     * database, but the milliseconds are lost and every date has to be parsed when it's read.
+     */
+    ISO_TEXT,
+
+    /**
+     * As an integer of the milliseconds since the epoch, which is read without any parsing and keeps the
+     * milliseconds. The column should be declared as an INTEGER, otherwise SQLite converts the number to text when
+     * it's stored.
+     */
+    EPOCH_MILLIS
+}
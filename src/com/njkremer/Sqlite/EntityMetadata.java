@@ -0,0 +1,239 @@
+package com.njkremer.Sqlite;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.njkremer.Sqlite.Annotations.OneToMany;
+
+/**
+ * The cached description of how a POJO "maps" to a database table: the table name, the columns in declaration order,
+ * the {@linkplain com.njkremer.Sqlite.Annotations.PrimaryKey PrimaryKey}, and the {@linkplain OneToMany}
+ * relationships.
+ *
+ * <p>Building the metadata requires scanning the declared fields and methods of the class, so it is done once per
+ * class with {@linkplain #forClass(Class)} and then shared by every {@linkplain SqlExecutor}. Instances are immutable
+ * and safe to use from multiple threads.
+ */
+final class EntityMetadata {
+
+    /**
+     * Returns the metadata for the passed in class, building and caching it the first time the class is seen.
+     *
+     * @param clazz The POJO class that "maps" to a table in the database.
+     * @return The {@linkplain EntityMetadata} for the class.
+     */
+    static EntityMetadata forClass(Class<?> clazz) {
+        EntityMetadata metadata = CACHE.get(clazz);
+        if (metadata == null) {
+            metadata = new EntityMetadata(clazz);
+            EntityMetadata existing = CACHE.putIfAbsent(clazz, metadata);
+            if (existing != null) {
+                metadata = existing;
+            }
+        }
+        return metadata;
+    }
+
+    Class<?> getEntityClass() {
+        return clazz;
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return All of the columns of the class in the order the fields are declared.
+     */
+    List<ColumnMetadata> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @param name The name of the field/column.
+     * @return The column with the passed in name, or null if the class has no such field.
+     */
+    ColumnMetadata getColumn(String name) {
+        return columnsByName.get(name);
+    }
+
+    /**
+     * @return The columns that are written on an insert or update: every column that isn't an
+     * {@linkplain com.njkremer.Sqlite.Annotations.AutoIncrement AutoIncrement} field. Columns without a getter are
+     * still returned so the caller can decide how to handle them.
+     */
+    List<ColumnMetadata> getWritableColumns() {
+        return writableColumns;
+    }
+
+    /**
+     * @return The columns whose values are written on an insert or update: the {@linkplain #getWritableColumns()
+     * writable columns} that have a getter.
+     * @throws DataConnectionException If a {@linkplain Boolean} field has a getXXXX getter instead of isXXXX.
+     */
+    List<ColumnMetadata> getPersistedColumns() throws DataConnectionException {
+        if (misnamedBooleanGetter) {
+            throw new DataConnectionException("boolean fields must name their fields isValue, not getValue");
+        }
+        return persistedColumns;
+    }
+
+    /**
+     * @return The {@linkplain com.njkremer.Sqlite.Annotations.AutoIncrement AutoIncrement} column, or null if there
+     * isn't one. If there's more than one, the first one is returned.
+     */
+    ColumnMetadata getAutoIncrementColumn() {
+        return autoIncrementColumn;
+    }
+
+    /**
+     * @return The {@linkplain com.njkremer.Sqlite.Annotations.PrimaryKey PrimaryKey} column, or null if one isn't
+     * defined on the class.
+     */
+    ColumnMetadata getPrimaryKey() {
+        return primaryKey;
+    }
+
+    /**
+     * Returns the {@linkplain OneToMany} relationships of the class keyed by field name. The relationships are
+     * resolved the first time they are asked for, since resolving them requires the metadata of the related classes.
+     *
+     * @return An unmodifiable map of field name to {@linkplain Relationship}.
+     * @throws DataConnectionException If one of the relationships is not set up correctly.
+     */
+    Map<String, Relationship> getRelationships() throws DataConnectionException {
+        resolveRelationships();
+        if (relationshipError != null) {
+            throw relationshipError;
+        }
+        return relationships;
+    }
+
+    /**
+     * @param methodName The name of a getter on the class.
+     * @return The {@linkplain Relationship} whose getter has the passed in name, or null if there isn't one.
+     * @throws DataConnectionException If one of the relationships is not set up correctly.
+     */
+    Relationship getRelationshipForGetter(String methodName) throws DataConnectionException {
+        resolveRelationships();
+        if (relationshipError != null) {
+            throw relationshipError;
+        }
+        return relationshipsByGetter.get(methodName);
+    }
+
+    /**
+     * @return true if the class declares at least one {@linkplain OneToMany} field.
+     */
+    boolean hasRelationships() {
+        return hasRelationshipFields;
+    }
+
+    private EntityMetadata(Class<?> clazz) {
+        this.clazz = clazz;
+        tableName = clazz.getSimpleName().toLowerCase();
+
+        List<ColumnMetadata> columnList = new ArrayList<ColumnMetadata>();
+        List<ColumnMetadata> writableList = new ArrayList<ColumnMetadata>();
+        List<ColumnMetadata> persistedList = new ArrayList<ColumnMetadata>();
+        Map<String, ColumnMetadata> byName = new HashMap<String, ColumnMetadata>();
+        ColumnMetadata pk = null;
+        ColumnMetadata autoIncrement = null;
+        boolean relationshipFields = false;
+        boolean misnamedBoolean = false;
+
+        for (Field field : clazz.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                continue;
+            }
+            if (field.isAnnotationPresent(OneToMany.class)) {
+                relationshipFields = true;
+                continue;
+            }
+            ColumnMetadata column = new ColumnMetadata(clazz, field);
+            columnList.add(column);
+            byName.put(column.getName(), column);
+            if (!column.isAutoIncrement()) {
+                writableList.add(column);
+                if (column.getGetter() != null) {
+                    persistedList.add(column);
+                }
+                else if (column.hasMisnamedBooleanGetter()) {
+                    misnamedBoolean = true;
+                }
+            }
+            else if (autoIncrement == null) {
+                autoIncrement = column;
+            }
+            if (column.isPrimaryKey()) {
+                pk = column;
+            }
+        }
+
+        columns = Collections.unmodifiableList(columnList);
+        writableColumns = Collections.unmodifiableList(writableList);
+        persistedColumns = Collections.unmodifiableList(persistedList);
+        misnamedBooleanGetter = misnamedBoolean;
+        autoIncrementColumn = autoIncrement;
+        columnsByName = Collections.unmodifiableMap(byName);
+        primaryKey = pk;
+        hasRelationshipFields = relationshipFields;
+    }
+
+    private void resolveRelationships() {
+        if (relationshipsResolved) {
+            return;
+        }
+        synchronized (this) {
+            if (relationshipsResolved) {
+                return;
+            }
+            Map<String, Relationship> byField = new LinkedHashMap<String, Relationship>();
+            Map<String, Relationship> byGetter = new HashMap<String, Relationship>();
+            try {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(OneToMany.class)) {
+                        if (field.getType() != List.class) {
+                            throw new DataConnectionException(String.format("The return type of a OneToMany relationship must be a List Type for field %s", field.getName()));
+                        }
+                        Relationship relationship = new Relationship(field);
+                        byField.put(field.getName(), relationship);
+                        byGetter.put(relationship.getterName(), relationship);
+                    }
+                }
+                relationships = Collections.unmodifiableMap(byField);
+                relationshipsByGetter = Collections.unmodifiableMap(byGetter);
+            }
+            catch (DataConnectionException e) {
+                relationshipError = e;
+            }
+            relationshipsResolved = true;
+        }
+    }
+
+    private final Class<?> clazz;
+    private final String tableName;
+    private final List<ColumnMetadata> columns;
+    private final List<ColumnMetadata> writableColumns;
+    private final List<ColumnMetadata> persistedColumns;
+    private final boolean misnamedBooleanGetter;
+    private final ColumnMetadata autoIncrementColumn;
+    private final Map<String, ColumnMetadata> columnsByName;
+    private final ColumnMetadata primaryKey;
+    private final boolean hasRelationshipFields;
+
+    private volatile boolean relationshipsResolved = false;
+    private Map<String, Relationship> relationships;
+    private Map<String, Relationship> relationshipsByGetter;
+    private DataConnectionException relationshipError;
+
+    private static final ConcurrentMap<Class<?>, EntityMetadata> CACHE = new ConcurrentHashMap<Class<?>, EntityMetadata>();
+}
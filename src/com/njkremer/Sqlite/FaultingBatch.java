@@ -0,0 +1,78 @@
+package com.njkremer.Sqlite;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The objects returned by the same {@linkplain SqlExecutor#getList()}, which load a relationship together the first
+ * time it's faulted in on any of them, like Hibernate's batch-size. The objects are only weakly referenced, so
+ * holding on to one object from the results doesn't keep the rest of them in memory.
+ */
+final class FaultingBatch {
+
+    /**
+     * @param size The most objects to load a relationship for with one query.
+     */
+    FaultingBatch(int size) {
+        this.size = size;
+    }
+
+    synchronized void add(FaultingInterceptor sibling) {
+        sibling.setBatchIndex(siblings.size());
+        siblings.add(new WeakReference<FaultingInterceptor>(sibling));
+    }
+
+    /**
+     * Loads a relationship for the passed in object along with the objects after it in the results that haven't
+     * loaded the relationship yet, and stores it on the other objects.
+     *
+     * @param interceptor The interceptor of the object the relationship is being loaded for.
+     * @param relationship The relationship to load.
+     * @return The related objects of the passed in object, which the caller is responsible for storing.
+     * @throws DataConnectionException
+     */
+    List<?> load(FaultingInterceptor interceptor, Relationship relationship) throws DataConnectionException {
+        List<FaultingInterceptor> batch = getBatch(interceptor, relationship);
+        Set<Object> keys = new LinkedHashSet<Object>();
+        for (FaultingInterceptor sibling : batch) {
+            keys.add(PrimaryKeyCache.normalize(sibling.getPrimaryKey()));
+        }
+        Map<Object, List<Object>> relatedByKey = SqlExecutor.loadRelatedObjects(relationship, new ArrayList<Object>(keys));
+
+        for (FaultingInterceptor sibling : batch) {
+            if (sibling != interceptor) {
+                sibling.store(relationship, getRelated(relatedByKey, sibling), false);
+            }
+        }
+        return getRelated(relatedByKey, interceptor);
+    }
+
+    /**
+     * @return The passed in object followed by up to size - 1 of the objects after it, wrapping around to the start
+     * of the results, that haven't loaded the relationship.
+     */
+    private synchronized List<FaultingInterceptor> getBatch(FaultingInterceptor interceptor, Relationship relationship) {
+        List<FaultingInterceptor> batch = new ArrayList<FaultingInterceptor>(Math.min(size, siblings.size()));
+        batch.add(interceptor);
+        int start = interceptor.getBatchIndex();
+        for (int i = 1; i < siblings.size() && batch.size() < size; i++) {
+            FaultingInterceptor sibling = siblings.get((start + i) % siblings.size()).get();
+            if (sibling != null && sibling != interceptor && !sibling.isLoaded(relationship)) {
+                batch.add(sibling);
+            }
+        }
+        return batch;
+    }
+
+    private static List<?> getRelated(Map<Object, List<Object>> relatedByKey, FaultingInterceptor interceptor) throws DataConnectionException {
+        List<Object> related = relatedByKey.get(PrimaryKeyCache.normalize(interceptor.getPrimaryKey()));
+        return related == null ? new ArrayList<Object>() : related;
+    }
+
+    private final int size;
+    private final List<WeakReference<FaultingInterceptor>> siblings = new ArrayList<WeakReference<FaultingInterceptor>>();
+}
@@ -0,0 +1,144 @@
+package com.njkremer.Sqlite;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.cglib.proxy.MethodInterceptor;
+import net.sf.cglib.proxy.MethodProxy;
+
+/**
+ * The interceptor of the objects {@linkplain SqlExecutor} returns for classes with
+ * {@linkplain com.njkremer.Sqlite.Annotations.OneToMany OneToMany} relationships, which faults in the relationships of
+ * the object the first time their getters are called and implements {@linkplain LazyRelationships} for it. The
+ * objects are instances of a {@linkplain ProxyClass}.
+ *
+ * <p>Loaded relationships are remembered and set on the object's backing field, so the getter only queries the
+ * database once per object. Calling the setter of a relationship counts as loading it. The related objects are
+ * queried without holding the interceptor's lock, since the query may have to wait on a connection that's held by
+ * another thread that's waiting on the lock, so two threads faulting in the same relationship at once may both query
+ * for it, but they both get back the list that was stored first.
+ *
+ * <p>If the object came back in a list of results, faulting in a relationship loads it for a batch of the other
+ * objects in the list too, see {@linkplain FaultingBatch}.
+ */
+final class FaultingInterceptor implements MethodInterceptor {
+
+    /**
+     * @param metadata The metadata of the class of the object.
+     * @param batch The batch of objects to load relationships together with, or null to load them for just this one.
+     */
+    FaultingInterceptor(EntityMetadata metadata, FaultingBatch batch) {
+        this.metadata = metadata;
+        this.batch = batch;
+    }
+
+    public Object intercept(Object object, Method method, Object[] arguments, MethodProxy methodProxy) throws Throwable {
+        if (method.getDeclaringClass() == LazyRelationships.class) {
+            Relationship relationship = getRelationship((String) arguments[0]);
+            if (method.getName().equals("isLoaded")) {
+                return isLoaded(relationship);
+            }
+            store(relationship, query(relationship), true);
+            return null;
+        }
+
+        Relationship relationship = metadata.getRelationshipForGetter(method.getName());
+        if (relationship != null) {
+            synchronized (this) {
+                if (loaded.containsKey(relationship)) {
+                    return loaded.get(relationship);
+                }
+            }
+            return store(relationship, batch == null ? query(relationship) : batch.load(this, relationship), false);
+        }
+        else if (method.getReturnType() == List.class) {
+            throw new DataConnectionException(String.format("No OneToMany relationship could be found on a member variable that corresponds to the method %s", method.getName()));
+        }
+
+        relationship = getRelationshipForSetter(method);
+        if (relationship != null) {
+            synchronized (this) {
+                methodProxy.invokeSuper(object, arguments);
+                loaded.put(relationship, (List<?>) arguments[0]);
+            }
+            return null;
+        }
+        return methodProxy.invokeSuper(object, arguments);
+    }
+
+    /**
+     * Sets the object this is the interceptor of, which has to be done before the object is used.
+     */
+    void setObject(Object object) {
+        this.object = object;
+    }
+
+    /**
+     * Sets where the object is in its {@linkplain FaultingBatch}, which is only used while holding the batch's lock.
+     */
+    void setBatchIndex(int batchIndex) {
+        this.batchIndex = batchIndex;
+    }
+
+    int getBatchIndex() {
+        return batchIndex;
+    }
+
+    Object getPrimaryKey() throws DataConnectionException {
+        return metadata.getPrimaryKey().getValue(object);
+    }
+
+    synchronized boolean isLoaded(Relationship relationship) {
+        return loaded.containsKey(relationship);
+    }
+
+    /**
+     * Stores the related objects of a relationship, unless replace is false and they were already stored.
+     *
+     * @return The related objects that are stored.
+     */
+    synchronized List<?> store(Relationship relationship, List<?> relatedObjects, boolean replace) throws DataConnectionException {
+        if (!replace && loaded.containsKey(relationship)) {
+            return loaded.get(relationship);
+        }
+        try {
+            relationship.getField().set(object, relatedObjects);
+        }
+        catch (IllegalAccessException e) {
+            throw new DataConnectionException(String.format("Could not set the %s relationship", relationship.getFieldName()), e);
+        }
+        loaded.put(relationship, relatedObjects);
+        return relatedObjects;
+    }
+
+    private List<?> query(Relationship relationship) throws DataConnectionException {
+        return SqlStatement.select(relationship.getRelatedClassType()).where(relationship.getFk()).eq(getPrimaryKey()).getList();
+    }
+
+    private Relationship getRelationship(String field) throws DataConnectionException {
+        Relationship relationship = metadata.getRelationships().get(field);
+        if (relationship == null) {
+            throw new DataConnectionException(String.format("No OneToMany relationship named %s could be found on %s", field, metadata.getEntityClass().getSimpleName()));
+        }
+        return relationship;
+    }
+
+    private Relationship getRelationshipForSetter(Method method) throws DataConnectionException {
+        for (Relationship relationship : metadata.getRelationships().values()) {
+            if (method.equals(relationship.getSetter())) {
+                return relationship;
+            }
+        }
+        return null;
+    }
+
+    private final EntityMetadata metadata;
+    private final FaultingBatch batch;
+    private Object object;
+    // Guarded by the batch.
+    private int batchIndex;
+    // Guarded by this.
+    private final Map<Relationship, List<?>> loaded = new HashMap<Relationship, List<?>>();
+}
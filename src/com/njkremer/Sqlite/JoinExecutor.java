@@ -22,8 +22,8 @@ public class JoinExecutor {
     }
 
     public JoinExecutor join(Class<?> leftClazz, String leftField, Class<?> rightClazz, String rightField) {
-        String rightClassName = rightClazz.getSimpleName().toLowerCase();
-        String leftClassName = leftClazz.getSimpleName().toLowerCase();
+        String rightClassName = EntityMetadata.forClass(rightClazz).getTableName();
+        String leftClassName = EntityMetadata.forClass(leftClazz).getTableName();
         String joinTypeSql = "";
         if (joinType != null) {
             joinTypeSql = this.joinType.getSql();
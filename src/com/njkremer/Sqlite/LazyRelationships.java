@@ -0,0 +1,35 @@
+package com.njkremer.Sqlite;
+
+import com.njkremer.Sqlite.Annotations.OneToMany;
+
+/**
+ * Implemented by the objects returned from a query whose class has {@linkplain OneToMany} relationships. The
+ * related objects of a relationship are "faulted" in from the database the first time its getter is called, and the
+ * same list is returned from then on. An object can be cast to this interface to check whether a relationship has
+ * been loaded yet, or to load it again:
+ *
+ * <pre>
+ * User user = SqlStatement.select(User.class).where("name").eq("Nick").getFirst();
+ * ((LazyRelationships) user).refresh("things");
+ * </pre>
+ *
+ * <p>These methods and the relationship getters are safe to call from more than one thread.
+ */
+public interface LazyRelationships {
+
+    /**
+     * @param field The name of the {@linkplain OneToMany} field.
+     * @return true if the related objects have been loaded, or set through the relationship's setter.
+     * @throws DataConnectionException If the field isn't a {@linkplain OneToMany} relationship.
+     */
+    boolean isLoaded(String field) throws DataConnectionException;
+
+    /**
+     * Loads the related objects of the relationship from the database again, replacing the ones that were loaded.
+     *
+     * @param field The name of the {@linkplain OneToMany} field.
+     * @throws DataConnectionException If the field isn't a {@linkplain OneToMany} relationship or the related objects
+     * couldn't be loaded.
+     */
+    void refresh(String field) throws DataConnectionException;
+}
@@ -0,0 +1,210 @@
+package com.njkremer.Sqlite;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of the rows looked up with
+ * {@linkplain SqlStatement#findById(Class, Object)}, keyed by table and primary key. Rows are cached as the values of
+ * their columns rather than as objects, so every lookup gets its own copy that the caller is free to change.
+ *
+ * <p>Every table has a generation that is bumped whenever the ORM writes to the table, which invalidates all of its
+ * cached rows at once. A row is only cached if the generation of its table is the same after it was read as it was
+ * before, so a row that was read while the table was being written to is never cached with an out of date value.
+ * Since the rows a transaction writes aren't visible to other connections until it commits, every table is
+ * invalidated when a transaction ends, and the cache isn't used by a thread in a transaction at all.
+ *
+ * <p>Only writes made through the ORM invalidate the cache, so it shouldn't be used if anything else writes to the
+ * database.
+ */
+final class PrimaryKeyCache {
+
+    /**
+     * @param capacity The maximum number of rows to keep, 0 turns caching off.
+     */
+    PrimaryKeyCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        trimTo(capacity);
+    }
+
+    synchronized boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * @param table The table the row is in.
+     * @return The current generation of the table, to be passed to {@linkplain #put(String, Object, Object[], long)}.
+     */
+    synchronized long getGeneration(String table) {
+        Long generation = generations.get(table);
+        return generation == null ? 0 : generation;
+    }
+
+    /**
+     * @param table The table the row is in.
+     * @param primaryKey The primary key of the row.
+     * @return A copy of the values of the row, or null if it isn't cached.
+     */
+    synchronized Object[] get(String table, Object primaryKey) {
+        Key key = new Key(table, primaryKey);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.generation != getGeneration(table)) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(entry.values);
+    }
+
+    /**
+     * Caches the values of a row, unless the table has been written to since the passed in generation.
+     *
+     * @param table The table the row is in.
+     * @param primaryKey The primary key of the row.
+     * @param values The values of the row.
+     * @param generation The generation of the table from before the row was read.
+     */
+    synchronized void put(String table, Object primaryKey, Object[] values, long generation) {
+        if (capacity == 0 || generation != getGeneration(table)) {
+            return;
+        }
+        entries.put(new Key(table, primaryKey), new Entry(copy(values), generation));
+        trimTo(capacity);
+    }
+
+    /**
+     * Invalidates all of the cached rows of a table.
+     *
+     * @param table The table that was written to.
+     */
+    synchronized void invalidate(String table) {
+        generations.put(table, getGeneration(table) + 1);
+    }
+
+    /**
+     * Invalidates every cached row.
+     */
+    synchronized void invalidateAll() {
+        for (Map.Entry<String, Long> generation : generations.entrySet()) {
+            generation.setValue(generation.getValue() + 1);
+        }
+        entries.clear();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @param columns The columns to read.
+     * @param object The object to read them from.
+     * @return The values of the columns.
+     * @throws DataConnectionException
+     */
+    static Object[] readValues(List<ColumnMetadata> columns, Object object) throws DataConnectionException {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columns.get(i).getValue(object);
+        }
+        return values;
+    }
+
+    /**
+     * Normalizes a primary key, so that for instance an {@linkplain Integer} and a {@linkplain Long} with the same
+     * value find the same row.
+     *
+     * @param primaryKey The primary key.
+     * @return The normalized primary key.
+     */
+    static Object normalize(Object primaryKey) {
+        if (primaryKey instanceof Integer || primaryKey instanceof Short || primaryKey instanceof Byte) {
+            return ((Number) primaryKey).longValue();
+        }
+        return primaryKey;
+    }
+
+    private void trimTo(int size) {
+        while (entries.size() > size) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Copies the values of a row, including the {@linkplain Date Dates} and BLOBs since they can be changed.
+     */
+    static Object[] copy(Object[] values) {
+        Object[] copy = values.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if (copy[i] instanceof Date) {
+                copy[i] = ((Date) copy[i]).clone();
+            }
+            else if (copy[i] instanceof byte[]) {
+                copy[i] = ((byte[]) copy[i]).clone();
+            }
+            else if (copy[i] instanceof ByteBuffer) {
+                ByteBuffer buffer = ((ByteBuffer) copy[i]).duplicate();
+                copy[i] = (ByteBuffer) ByteBuffer.allocate(buffer.remaining()).put(buffer).flip();
+            }
+        }
+        return copy;
+    }
+
+    private static final class Key {
+
+        Key(String table, Object primaryKey) {
+            this.table = table;
+            this.primaryKey = primaryKey;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) object;
+            return table.equals(other.table) && primaryKey.equals(other.primaryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * table.hashCode() + primaryKey.hashCode();
+        }
+
+        private final String table;
+        private final Object primaryKey;
+    }
+
+    private static final class Entry {
+
+        Entry(Object[] values, long generation) {
+            this.values = values;
+            this.generation = generation;
+        }
+
+        private final Object[] values;
+        private final long generation;
+    }
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private final Map<String, Long> generations = new HashMap<String, Long>();
+    private int capacity;
+    private long hits;
+    private long misses;
+}
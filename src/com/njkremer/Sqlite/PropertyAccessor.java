@@ -0,0 +1,73 @@
+package com.njkremer.Sqlite;
+
+/**
+ * Reads and writes a single property of a POJO through its getter and setter.
+ *
+ * <p>This is used internally when hydrating objects out of a result set and when reading the values to insert or
+ * update. Implementations are normally generated per property so that the getter and setter are called directly
+ * instead of through {@linkplain java.lang.reflect.Method#invoke(Object, Object...)}. The primitive methods (e.g.
+ * {@linkplain #setInt(Object, int)}) are overridden for primitive properties so a value can go from the result set to
+ * the setter without being boxed. For other properties they fall back to {@linkplain #get(Object)} and
+ * {@linkplain #set(Object, Object)}.
+ *
+ * <p>This class is public only so that generated accessors, which live in the same package as the POJO, can extend
+ * it. It isn't meant to be used outside of the ORM.
+ */
+public abstract class PropertyAccessor {
+
+    /**
+     * @param target The object to read the property from.
+     * @return The value of the property, boxed if it's a primitive.
+     */
+    public Object get(Object target) {
+        throw new UnsupportedOperationException("The property has no getter");
+    }
+
+    /**
+     * @param target The object to set the property on.
+     * @param value The value to set, null is treated as the default value for a primitive property.
+     */
+    public void set(Object target, Object value) {
+        throw new UnsupportedOperationException("The property has no setter");
+    }
+
+    public int getInt(Object target) {
+        return ((Number) get(target)).intValue();
+    }
+
+    public void setInt(Object target, int value) {
+        set(target, Integer.valueOf(value));
+    }
+
+    public long getLong(Object target) {
+        return ((Number) get(target)).longValue();
+    }
+
+    public void setLong(Object target, long value) {
+        set(target, Long.valueOf(value));
+    }
+
+    public double getDouble(Object target) {
+        return ((Number) get(target)).doubleValue();
+    }
+
+    public void setDouble(Object target, double value) {
+        set(target, Double.valueOf(value));
+    }
+
+    public float getFloat(Object target) {
+        return ((Number) get(target)).floatValue();
+    }
+
+    public void setFloat(Object target, float value) {
+        set(target, Float.valueOf(value));
+    }
+
+    public boolean getBoolean(Object target) {
+        return ((Boolean) get(target)).booleanValue();
+    }
+
+    public void setBoolean(Object target, boolean value) {
+        set(target, Boolean.valueOf(value));
+    }
+}
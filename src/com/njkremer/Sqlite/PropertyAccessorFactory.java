@@ -0,0 +1,232 @@
+package com.njkremer.Sqlite;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.cglib.asm.ClassVisitor;
+import net.sf.cglib.asm.Type;
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Creates the {@linkplain PropertyAccessor} for a property of a POJO.
+ *
+ * <p>When the POJO and its getter/setter are public, a small class is generated with CGLIB (which is already used
+ * for object faulting) that calls the getter and setter directly, with primitive properties getting their own
+ * unboxed <code>getInt</code>/<code>setInt</code> style methods. When a class can't be generated (e.g. the methods
+ * aren't public, or the platform doesn't allow defining classes at runtime), a reflective accessor is used instead.
+ */
+final class PropertyAccessorFactory {
+
+    /**
+     * @param clazz The POJO class the property belongs to.
+     * @param getter The getter of the property, or null if it doesn't have one.
+     * @param setter The setter of the property, or null if it doesn't have one.
+     * @return A {@linkplain PropertyAccessor} for the property.
+     */
+    static PropertyAccessor create(Class<?> clazz, Method getter, Method setter) {
+        if (canGenerate(clazz, getter) && canGenerate(clazz, setter)) {
+            try {
+                Generator generator = new Generator(clazz, getter, setter);
+                return generator.create();
+            }
+            catch (Throwable e) {
+                logger.debug(String.format("Could not generate a property accessor for %s, falling back to reflection", clazz.getName()), e);
+            }
+        }
+        return new ReflectiveAccessor(getter, setter);
+    }
+
+    private static boolean canGenerate(Class<?> clazz, Method method) {
+        if (method == null) {
+            return true;
+        }
+        for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers());
+    }
+
+    private PropertyAccessorFactory() {
+        // to enforce static usage...
+    }
+
+    /**
+     * Generates a subclass of {@linkplain PropertyAccessor} for a single property, defined in the class loader and
+     * package of the POJO so that it can call the POJO's methods directly.
+     */
+    private static class Generator extends AbstractClassGenerator {
+
+        Generator(Class<?> clazz, Method getter, Method setter) {
+            super(SOURCE);
+            this.clazz = clazz;
+            this.getter = getter;
+            this.setter = setter;
+            setNamePrefix(clazz.getName());
+        }
+
+        PropertyAccessor create() {
+            String key = clazz.getName() + "#" + (getter == null ? "" : getter.getName()) + "#" + (setter == null ? "" : setter.getName());
+            return (PropertyAccessor) super.create(key);
+        }
+
+        public void generateClass(ClassVisitor v) throws Exception {
+            Type entityType = Type.getType(clazz);
+            ClassEmitter ce = new ClassEmitter(v);
+            ce.begin_class(Constants.V1_2, Constants.ACC_PUBLIC, getClassName(), ACCESSOR_TYPE, null, Constants.SOURCE_FILE);
+            EmitUtils.null_constructor(ce);
+
+            if (getter != null) {
+                Type returnType = Type.getType(getter.getReturnType());
+
+                CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, GET, null);
+                e.load_arg(0);
+                e.checkcast(entityType);
+                e.invoke(ReflectUtils.getMethodInfo(getter));
+                e.box(returnType);
+                e.return_value();
+                e.end_method();
+
+                Signature primitiveGet = PRIMITIVE_GETTERS.get(getter.getReturnType());
+                if (primitiveGet != null) {
+                    e = ce.begin_method(Constants.ACC_PUBLIC, primitiveGet, null);
+                    e.load_arg(0);
+                    e.checkcast(entityType);
+                    e.invoke(ReflectUtils.getMethodInfo(getter));
+                    e.return_value();
+                    e.end_method();
+                }
+            }
+
+            if (setter != null) {
+                Class<?> parameterClass = setter.getParameterTypes()[0];
+                Type parameterType = Type.getType(parameterClass);
+
+                CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, SET, null);
+                e.load_arg(0);
+                e.checkcast(entityType);
+                e.load_arg(1);
+                e.unbox_or_zero(parameterType);
+                e.invoke(ReflectUtils.getMethodInfo(setter));
+                e.return_value();
+                e.end_method();
+
+                Signature primitiveSet = PRIMITIVE_SETTERS.get(parameterClass);
+                if (primitiveSet != null) {
+                    e = ce.begin_method(Constants.ACC_PUBLIC, primitiveSet, null);
+                    e.load_arg(0);
+                    e.checkcast(entityType);
+                    e.load_arg(1);
+                    e.invoke(ReflectUtils.getMethodInfo(setter));
+                    e.return_value();
+                    e.end_method();
+                }
+            }
+
+            ce.end_class();
+        }
+
+        protected ClassLoader getDefaultClassLoader() {
+            return clazz.getClassLoader();
+        }
+
+        @SuppressWarnings("rawtypes")
+        protected Object firstInstance(Class type) throws Exception {
+            return ReflectUtils.newInstance(type);
+        }
+
+        protected Object nextInstance(Object instance) throws Exception {
+            return instance;
+        }
+
+        private final Class<?> clazz;
+        private final Method getter;
+        private final Method setter;
+
+        private static final Source SOURCE = new Source(PropertyAccessor.class.getName());
+    }
+
+    /**
+     * Used when an accessor can't be generated for a property.
+     */
+    private static class ReflectiveAccessor extends PropertyAccessor {
+
+        ReflectiveAccessor(Method getter, Method setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        public Object get(Object target) {
+            if (getter == null) {
+                return super.get(target);
+            }
+            return invoke(getter, target);
+        }
+
+        public void set(Object target, Object value) {
+            if (setter == null) {
+                super.set(target, value);
+            }
+            else {
+                invoke(setter, target, value);
+            }
+        }
+
+        private static Object invoke(Method method, Object target, Object... arguments) {
+            try {
+                return method.invoke(target, arguments);
+            }
+            catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new UndeclaredThrowableException(cause);
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private final Method getter;
+        private final Method setter;
+    }
+
+    private static final Type ACCESSOR_TYPE = Type.getType(PropertyAccessor.class);
+    private static final Signature GET = new Signature("get", Constants.TYPE_OBJECT, new Type[] { Constants.TYPE_OBJECT });
+    private static final Signature SET = new Signature("set", Type.VOID_TYPE, new Type[] { Constants.TYPE_OBJECT, Constants.TYPE_OBJECT });
+    private static final Map<Class<?>, Signature> PRIMITIVE_GETTERS = new HashMap<Class<?>, Signature>();
+    private static final Map<Class<?>, Signature> PRIMITIVE_SETTERS = new HashMap<Class<?>, Signature>();
+
+    static {
+        addPrimitive(Integer.TYPE, "Int");
+        addPrimitive(Long.TYPE, "Long");
+        addPrimitive(Double.TYPE, "Double");
+        addPrimitive(Float.TYPE, "Float");
+        addPrimitive(Boolean.TYPE, "Boolean");
+    }
+
+    private static void addPrimitive(Class<?> primitive, String name) {
+        Type type = Type.getType(primitive);
+        PRIMITIVE_GETTERS.put(primitive, new Signature("get" + name, type, new Type[] { Constants.TYPE_OBJECT }));
+        PRIMITIVE_SETTERS.put(primitive, new Signature("set" + name, Type.VOID_TYPE, new Type[] { Constants.TYPE_OBJECT, type }));
+    }
+
+    private static final Logger logger = Logger.getLogger(PropertyAccessorFactory.class);
+}
@@ -0,0 +1,92 @@
+package com.njkremer.Sqlite;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
+import net.sf.cglib.proxy.NoOp;
+
+import com.njkremer.Sqlite.Annotations.OneToMany;
+
+/**
+ * The cached cglib subclass that the objects of a class with {@linkplain OneToMany} relationships are created as, so
+ * that the relationships can be faulted in by a {@linkplain FaultingInterceptor}.
+ *
+ * <p>The subclass is generated once per class with {@linkplain #forEntity(EntityMetadata)}, and new objects are
+ * created from it directly rather than wrapping an existing object, so a proxy costs no more than the object itself
+ * plus its interceptor. Only the relationship getters and setters, the methods that return a {@linkplain List}, and
+ * the {@linkplain LazyRelationships} methods go through the interceptor; every other method is called directly.
+ */
+final class ProxyClass {
+
+    /**
+     * Returns the proxy class of the passed in entity, generating and caching it the first time the class is seen.
+     *
+     * @param metadata The metadata of a class with {@linkplain OneToMany} relationships.
+     * @return The {@linkplain ProxyClass} of the class.
+     * @throws DataConnectionException If the relationships of the class aren't set up correctly.
+     */
+    static ProxyClass forEntity(EntityMetadata metadata) throws DataConnectionException {
+        ProxyClass proxyClass = CACHE.get(metadata.getEntityClass());
+        if (proxyClass == null) {
+            proxyClass = new ProxyClass(metadata);
+            ProxyClass existing = CACHE.putIfAbsent(metadata.getEntityClass(), proxyClass);
+            if (existing != null) {
+                proxyClass = existing;
+            }
+        }
+        return proxyClass;
+    }
+
+    /**
+     * @param interceptor The interceptor of the new object.
+     * @return A new instance of the proxy class.
+     */
+    Object newInstance(FaultingInterceptor interceptor) {
+        return prototype.newInstance(new Callback[] { NoOp.INSTANCE, interceptor });
+    }
+
+    /**
+     * @param proxy An object created with {@linkplain #newInstance(FaultingInterceptor)}.
+     * @return The interceptor of the object.
+     */
+    static FaultingInterceptor getInterceptor(Object proxy) {
+        return (FaultingInterceptor) ((Factory) proxy).getCallback(INTERCEPTED);
+    }
+
+    private ProxyClass(EntityMetadata metadata) throws DataConnectionException {
+        final Set<String> interceptedNames = new HashSet<String>();
+        for (Relationship relationship : metadata.getRelationships().values()) {
+            interceptedNames.add(relationship.getterName());
+            interceptedNames.add(relationship.setterName());
+        }
+
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(metadata.getEntityClass());
+        enhancer.setInterfaces(new Class<?>[] { LazyRelationships.class });
+        enhancer.setCallbackFilter(new CallbackFilter() {
+            public int accept(Method method) {
+                if (method.getDeclaringClass() == LazyRelationships.class || method.getReturnType() == List.class || interceptedNames.contains(method.getName())) {
+                    return INTERCEPTED;
+                }
+                return DIRECT;
+            }
+        });
+        // The prototype is only used to create the real objects, so it doesn't need a real interceptor.
+        enhancer.setCallbacks(new Callback[] { NoOp.INSTANCE, new FaultingInterceptor(metadata, null) });
+        prototype = (Factory) enhancer.create();
+    }
+
+    private final Factory prototype;
+
+    private static final int DIRECT = 0;
+    private static final int INTERCEPTED = 1;
+    private static final ConcurrentMap<Class<?>, ProxyClass> CACHE = new ConcurrentHashMap<Class<?>, ProxyClass>();
+}
@@ -0,0 +1,196 @@
+package com.njkremer.Sqlite;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of the results of queries, keyed by the SQL of the query and the values bound
+ * to it. This is used by {@linkplain SqlExecutor#getList()}, {@linkplain SqlExecutor#getCount()} and
+ * {@linkplain SqlExecutor#getColumns(ColumnExpression)} when it's turned on with
+ * {@linkplain DataConnectionManager#setQueryCacheSize(int)}.
+ *
+ * <p>Like the {@linkplain PrimaryKeyCache}, every table has a generation that is bumped whenever the ORM writes to
+ * it, and a result is only returned if none of the tables of its query, including the joined ones, have been written
+ * to since it was read. Results can also be given a time to live, after which they're read again even if the ORM
+ * hasn't written to their tables, which bounds how stale a result can get when something else writes to the
+ * database. The cached results must not be changed, the caller is responsible for copying them.
+ */
+final class QueryCache {
+
+    /**
+     * @param capacity The maximum number of results to keep, 0 turns caching off.
+     * @param timeToLive How long a result is kept in milliseconds, 0 keeps results until they're invalidated.
+     */
+    QueryCache(int capacity, long timeToLive) {
+        this.capacity = capacity;
+        this.timeToLive = timeToLive;
+    }
+
+    synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        trimTo(capacity);
+    }
+
+    synchronized void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    synchronized boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * @param tables The tables of a query.
+     * @return The current generations of the tables, to be passed to
+     * {@linkplain #put(Key, Object, String[], long[])}.
+     */
+    synchronized long[] getGenerations(String[] tables) {
+        long[] generations = new long[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            generations[i] = getGeneration(tables[i]);
+        }
+        return generations;
+    }
+
+    /**
+     * @param key The key of the query.
+     * @return The result of the query, or null if it isn't cached.
+     */
+    synchronized Object get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (!entry.isCurrent()) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    /**
+     * Caches the result of a query, unless one of its tables has been written to since the passed in generations.
+     *
+     * @param key The key of the query.
+     * @param result The result of the query.
+     * @param tables The tables of the query.
+     * @param generations The generations of the tables from before the query was run.
+     */
+    synchronized void put(Key key, Object result, String[] tables, long[] generations) {
+        if (capacity == 0 || !Arrays.equals(generations, getGenerations(tables))) {
+            return;
+        }
+        long expires = timeToLive == 0 ? 0 : System.currentTimeMillis() + timeToLive;
+        entries.put(key, new Entry(result, tables, generations, expires));
+        trimTo(capacity);
+    }
+
+    /**
+     * Invalidates all of the cached results whose query uses a table.
+     *
+     * @param table The table that was written to.
+     */
+    synchronized void invalidate(String table) {
+        generations.put(table, getGeneration(table) + 1);
+    }
+
+    /**
+     * Invalidates every cached result.
+     */
+    synchronized void invalidateAll() {
+        for (Map.Entry<String, Long> generation : generations.entrySet()) {
+            generation.setValue(generation.getValue() + 1);
+        }
+        entries.clear();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private long getGeneration(String table) {
+        Long generation = generations.get(table);
+        return generation == null ? 0 : generation;
+    }
+
+    private void trimTo(int size) {
+        while (entries.size() > size) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * The key of a query: what's being read, the SQL and the values bound to it.
+     */
+    static final class Key {
+
+        /**
+         * @param kind What the result is read into, since the same SQL can be read in more than one way.
+         * @param sql The SQL of the query.
+         * @param values The values bound to the query, which are copied. BLOBs bound as a byte[] are compared by their
+         * contents.
+         */
+        Key(String kind, String sql, List<Object> values) {
+            this.kind = kind;
+            this.sql = sql;
+            this.values = PrimaryKeyCache.copy(values.toArray());
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) object;
+            return kind.equals(other.kind) && sql.equals(other.sql) && Arrays.deepEquals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * kind.hashCode() + sql.hashCode()) + Arrays.deepHashCode(values);
+        }
+
+        private final String kind;
+        private final String sql;
+        private final Object[] values;
+    }
+
+    private final class Entry {
+
+        Entry(Object result, String[] tables, long[] generations, long expires) {
+            this.result = result;
+            this.tables = tables;
+            this.generations = generations;
+            this.expires = expires;
+        }
+
+        boolean isCurrent() {
+            if (expires != 0 && System.currentTimeMillis() >= expires) {
+                return false;
+            }
+            return Arrays.equals(generations, getGenerations(tables));
+        }
+
+        private final Object result;
+        private final String[] tables;
+        private final long[] generations;
+        private final long expires;
+    }
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private final Map<String, Long> generations = new HashMap<String, Long>();
+    private int capacity;
+    private long timeToLive;
+    private long hits;
+    private long misses;
+}
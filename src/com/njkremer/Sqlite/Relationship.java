@@ -1,6 +1,7 @@
 package com.njkremer.Sqlite;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 
@@ -18,18 +19,60 @@ public class Relationship {
             type = RelationshipType.ONE_TO_MANY;
             fk = ((OneToMany) field.getAnnotation(OneToMany.class)).value();
             fieldName = field.getName();
+            this.field = field;
+            field.setAccessible(true);
             ParameterizedType genericType = (ParameterizedType) field.getGenericType();
             Type[] types = genericType.getActualTypeArguments();
             relatedClassType = (Class<?>) types[0];
             
+            foreignKeyColumn = EntityMetadata.forClass(relatedClassType).getColumn(fk);
+            if (foreignKeyColumn == null) {
+                throw new DataConnectionException(String.format("Error occured when trying to get foreign key's type. The foreign key of %s does not exist on %s", fk, relatedClassType));
+            }
+            fkClassType = foreignKeyColumn.getType();
+
             try {
-                fkClassType = relatedClassType.getDeclaredField(fk).getType();
+                getter = field.getDeclaringClass().getDeclaredMethod(getterName(), (Class<?>[]) null);
             }
-            catch (Exception e) {
-                throw new DataConnectionException(String.format("Error occured when trying to get foreign key's type. The foreign key of %s does not exist on %s", fk, relatedClassType));
+            catch (NoSuchMethodException e) {
+                getter = null;
+            }
+            try {
+                setter = field.getDeclaringClass().getDeclaredMethod(setterName(), field.getType());
+            }
+            catch (NoSuchMethodException e) {
+                setter = null;
             }
         }
     }
+
+    /**
+     * @return The getter of the relationship's list on the owning class, or null if there isn't one.
+     */
+    Method getGetter() {
+        return getter;
+    }
+
+    /**
+     * @return The field that holds the relationship's list.
+     */
+    Field getField() {
+        return field;
+    }
+
+    /**
+     * @return The setter of the relationship's list on the owning class, or null if there isn't one.
+     */
+    Method getSetter() {
+        return setter;
+    }
+
+    /**
+     * @return The column on the related class that holds the foreign key back to the owning class.
+     */
+    ColumnMetadata getForeignKeyColumn() {
+        return foreignKeyColumn;
+    }
     
     public String getterName() {
         return "get" + SqliteUtils.capitalize(fieldName);
@@ -91,8 +134,12 @@ public class Relationship {
 
     private String fk;
     private String fieldName;
+    private Field field;
     private Class<?> relatedClassType;
     private Class<?> fkClassType;
     private RelationshipType type;
+    private ColumnMetadata foreignKeyColumn;
+    private Method getter;
+    private Method setter;
     
 }
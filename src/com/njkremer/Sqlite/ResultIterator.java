@@ -0,0 +1,178 @@
+package com.njkremer.Sqlite;
+
+import java.io.Closeable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import com.njkremer.Sqlite.ConnectionPool.PooledConnection;
+
+/**
+ * Iterates over the results of a query a row at a time, reading each row from the {@linkplain ResultSet} only when
+ * it's asked for, so the results never have to fit in memory all at once. This is returned by
+ * {@linkplain SqlExecutor#iterate()} and {@linkplain SqlExecutor#iterateColumns(ColumnExpression)}.
+ *
+ * <p>The iterator holds on to the statement and the database connection of the query until it's closed, which
+ * happens on its own once the last row has been read. If you stop before the end you need to call
+ * {@linkplain #close()} yourself, and until then other threads that need the connection have to wait on it. The
+ * iterator must be used and closed on the thread that created it, since the connection is held by that thread: using
+ * or closing it on any other thread throws an {@linkplain IllegalStateException} and leaves it open.
+ *
+ * <p>Since an iterator is also {@linkplain Iterable} it can be used in a for each loop, but only once:
+ *
+ * <pre>
+ * ResultIterator&lt;User&gt; users = SqlStatement.select(User.class).iterate();
+ * try {
+ *     for (User user : users) {
+ *         ...
+ *     }
+ * }
+ * finally {
+ *     users.close();
+ * }
+ * </pre>
+ *
+ * <p>Since {@linkplain Iterator#next()} can't throw a {@linkplain DataConnectionException}, a row that can't be read
+ * throws a {@linkplain RuntimeException} caused by it, after closing the iterator.
+ *
+ * @param <E> The type of object each row is read into.
+ */
+public abstract class ResultIterator<E> implements Iterator<E>, Iterable<E>, Closeable {
+
+    /**
+     * @param connection The connection the query ran on.
+     * @param statement The statement of the query.
+     * @param resultSet The results of the query.
+     * @param event The event to tell the {@linkplain StatementListener StatementListeners} about once the iterator is
+     * closed, or null if there are none.
+     */
+    ResultIterator(PooledConnection connection, PreparedStatement statement, ResultSet resultSet, StatementEvent event) {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.event = event;
+        this.owner = Thread.currentThread();
+    }
+
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        checkOwner();
+        if (!fetched) {
+            try {
+                hasRow = resultSet.next();
+            }
+            catch (SQLException e) {
+                close(e);
+                throw new RuntimeException(new DataConnectionException("Could not read the next row of the results", e));
+            }
+            fetched = true;
+            if (hasRow) {
+                rowsRead++;
+            }
+            else {
+                close();
+            }
+        }
+        return hasRow;
+    }
+
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        try {
+            return readRow(resultSet);
+        }
+        catch (Exception e) {
+            close(e);
+            throw new RuntimeException(new DataConnectionException("Could not read the next row of the results", e));
+        }
+    }
+
+    /**
+     * Rows can't be removed through the iterator.
+     *
+     * @throws UnsupportedOperationException Always.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("Rows can't be removed from the results of a query");
+    }
+
+    /**
+     * @return This iterator, so that it can be used in a for each loop.
+     */
+    public Iterator<E> iterator() {
+        return this;
+    }
+
+    /**
+     * Closes the result set and gives back the statement and connection of the query. Closing an iterator more than
+     * once does nothing.
+     *
+     * @throws IllegalStateException If the iterator is still open and this isn't the thread that created it.
+     */
+    public void close() {
+        close(null);
+    }
+
+    private void close(Throwable error) {
+        if (closed) {
+            return;
+        }
+        checkOwner();
+        closed = true;
+        DataConnectionManager.statementFinished(event, rowsRead, error);
+        try {
+            resultSet.close();
+        }
+        catch (SQLException e) {
+            logger.warn("Failed to close the result set", e);
+        }
+        connection.getStatementCache().release(statement);
+        DataConnectionManager.releaseConnection(connection);
+    }
+
+    /**
+     * @return true if the iterator has been closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * The connection is held by the thread that ran the query, and only that thread can give it back to the pool.
+     */
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("A ResultIterator can only be used and closed on the thread that created it, " + owner.getName());
+        }
+    }
+
+    /**
+     * Reads the row the result set is on.
+     *
+     * @param resultSet The result set, positioned on the row to read.
+     * @return The object the row was read into.
+     * @throws Exception
+     */
+    abstract E readRow(ResultSet resultSet) throws Exception;
+
+    private final PooledConnection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final StatementEvent event;
+    private final Thread owner;
+    private int rowsRead;
+    private boolean fetched;
+    private boolean hasRow;
+    private boolean closed;
+
+    private static final Logger logger = Logger.getLogger(ResultIterator.class);
+}
@@ -0,0 +1,19 @@
+package com.njkremer.Sqlite;
+
+/**
+ * Handles the rows of a query one at a time as they are read, see {@linkplain SqlExecutor#forEach(RowHandler)}.
+ *
+ * @param <T> The type of object each row is read into.
+ */
+public interface RowHandler<T> {
+
+    /**
+     * Handles a row of the results.
+     *
+     * @param row The object the row was read into. If the rows are being read into a reused instance then the row
+     * is only valid until this method returns.
+     * @throws DataConnectionException If this is thrown no more rows are read and it's passed back to the caller of
+     * {@linkplain SqlExecutor#forEach(RowHandler)}.
+     */
+    void handle(T row) throws DataConnectionException;
+}
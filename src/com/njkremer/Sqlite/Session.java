@@ -0,0 +1,170 @@
+package com.njkremer.Sqlite;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.njkremer.Sqlite.Annotations.PrimaryKey;
+import com.njkremer.Sqlite.utils.SqliteUtils;
+
+/**
+ * A unit of work that keeps an identity map of the objects read on the thread that opened it, keyed by their class
+ * and {@linkplain PrimaryKey}. While a session is open, every query run on its thread returns the object that's
+ * already in the session for a row rather than reading the row into a new object, and
+ * {@linkplain SqlStatement#findById(Class, Object)} returns it without going to the database at all. This includes
+ * the queries that load {@linkplain com.njkremer.Sqlite.Annotations.OneToMany OneToMany} relationships, so code that
+ * loads the same object many times while handling a request gets the same instance each time.
+ *
+ * <pre>
+ * Session session = Session.open();
+ * try {
+ *     User user = SqlStatement.findById(User.class, 1);
+ *     ...
+ * }
+ * finally {
+ *     session.close();
+ * }
+ * </pre>
+ *
+ * <p>Whenever the ORM writes to a table on the session's thread, the objects of that table are evicted from the
+ * session, so they're read again the next time they're queried. Writes made on other threads, or by anything other
+ * than the ORM, aren't seen until the objects are evicted with {@linkplain #evict(Object)} or {@linkplain #clear()}.
+ * Objects whose class doesn't have a {@linkplain PrimaryKey} aren't kept in the session.
+ *
+ * <p>A session must only be used on the thread that opened it and should be short lived, such as for a single
+ * request, since it holds on to every object read while it's open.
+ */
+public final class Session implements Closeable {
+
+    /**
+     * Opens a session on the current thread.
+     *
+     * @return The new {@linkplain Session}.
+     * @throws IllegalStateException If a session is already open on the current thread.
+     */
+    public static Session open() {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("A session is already open on this thread");
+        }
+        Session session = new Session();
+        CURRENT.set(session);
+        return session;
+    }
+
+    /**
+     * @return The session that's open on the current thread, or null if there isn't one.
+     */
+    public static Session getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param object An object that was read from the database.
+     * @return true if the object is the one in the session for its row.
+     * @throws DataConnectionException
+     */
+    public boolean contains(Object object) throws DataConnectionException {
+        Object primaryKey = getPrimaryKey(object);
+        return primaryKey != null && get(SqliteUtils.getClass(object), primaryKey) == object;
+    }
+
+    /**
+     * Removes an object from the session, so that its row is read into a new object the next time it's queried.
+     *
+     * @param object The object to evict.
+     * @throws DataConnectionException
+     */
+    public void evict(Object object) throws DataConnectionException {
+        Object primaryKey = getPrimaryKey(object);
+        Map<Object, Object> objects = objectsByClass.get(SqliteUtils.getClass(object));
+        if (primaryKey != null && objects != null) {
+            objects.remove(primaryKey);
+        }
+    }
+
+    /**
+     * Removes every object from the session.
+     */
+    public void clear() {
+        objectsByClass.clear();
+    }
+
+    /**
+     * @return The number of objects in the session.
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Object, Object> objects : objectsByClass.values()) {
+            size += objects.size();
+        }
+        return size;
+    }
+
+    /**
+     * Clears the session and closes it, if it's the one open on the current thread. Closing a session more than once
+     * does nothing.
+     */
+    public void close() {
+        clear();
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * @param clazz The class of the object.
+     * @param primaryKey The primary key of the object.
+     * @return The object in the session, or null if there isn't one.
+     */
+    <T> T get(Class<T> clazz, Object primaryKey) {
+        Map<Object, Object> objects = objectsByClass.get(clazz);
+        return objects == null ? null : clazz.cast(objects.get(PrimaryKeyCache.normalize(primaryKey)));
+    }
+
+    /**
+     * Adds an object that was read from the database to the session.
+     *
+     * @param clazz The class of the object.
+     * @param primaryKey The primary key of the object.
+     * @param object The object.
+     */
+    void put(Class<?> clazz, Object primaryKey, Object object) {
+        Map<Object, Object> objects = objectsByClass.get(clazz);
+        if (objects == null) {
+            objects = new HashMap<Object, Object>();
+            objectsByClass.put(clazz, objects);
+        }
+        objects.put(PrimaryKeyCache.normalize(primaryKey), object);
+    }
+
+    /**
+     * Evicts the objects of a table from the session open on the current thread, if there is one.
+     *
+     * @param table The table that was written to.
+     */
+    static void tableChanged(String table) {
+        Session session = CURRENT.get();
+        if (session == null) {
+            return;
+        }
+        Iterator<Class<?>> classes = session.objectsByClass.keySet().iterator();
+        while (classes.hasNext()) {
+            if (EntityMetadata.forClass(classes.next()).getTableName().equals(table)) {
+                classes.remove();
+            }
+        }
+    }
+
+    private static Object getPrimaryKey(Object object) throws DataConnectionException {
+        ColumnMetadata primaryKey = EntityMetadata.forClass(SqliteUtils.getClass(object)).getPrimaryKey();
+        return primaryKey == null ? null : primaryKey.getValue(object);
+    }
+
+    private Session() {
+    }
+
+    private final Map<Class<?>, Map<Object, Object>> objectsByClass = new HashMap<Class<?>, Map<Object, Object>>();
+
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<Session>();
+}
@@ -0,0 +1,55 @@
+package com.njkremer.Sqlite;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * A {@linkplain StatementListener} that logs a warning, with the SQL and its parameters filled in, for every statement
+ * that takes at least as long as a threshold. The SQL is only rendered for the statements that are logged.
+ *
+ * <pre>
+ * DataConnectionManager.addStatementListener(new SlowQueryLog(250));
+ * </pre>
+ */
+public class SlowQueryLog implements StatementListener {
+
+    /**
+     * @param thresholdMillis The number of milliseconds a statement has to take to be logged.
+     */
+    public SlowQueryLog(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("The threshold can't be negative");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public void beforeExecute(StatementEvent event) {
+    }
+
+    public void afterExecute(StatementEvent event) {
+        if (event.getElapsedNanos() < thresholdNanos || !logger.isEnabledFor(Level.WARN)) {
+            return;
+        }
+        String message = String.format("Slow statement took %d ms and %s %d rows: %s", TimeUnit.NANOSECONDS.toMillis(event.getElapsedNanos()),
+                event.getType() == StatementType.SELECT ? "read" : "changed", event.getRowCount(), event.getSql());
+        if (event.getError() != null) {
+            logger.warn(message, event.getError());
+        }
+        else {
+            logger.warn(message);
+        }
+    }
+
+    /**
+     * @return The threshold in milliseconds.
+     */
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    private final long thresholdNanos;
+
+    private static final Logger logger = Logger.getLogger(SlowQueryLog.class);
+}
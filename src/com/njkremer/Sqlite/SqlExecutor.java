@@ -1,34 +1,26 @@
 package com.njkremer.Sqlite;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.sql.Connection;
+import java.io.InputStream;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.sql.Types;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
-import org.aopalliance.intercept.MethodInterceptor;
-import org.aopalliance.intercept.MethodInvocation;
 import org.apache.log4j.Logger;
-import org.springframework.aop.framework.ProxyFactory;
 
-import com.njkremer.Sqlite.Annotations.AutoIncrement;
 import com.njkremer.Sqlite.Annotations.OneToMany;
 import com.njkremer.Sqlite.Annotations.PrimaryKey;
+import com.njkremer.Sqlite.ConnectionPool.PooledConnection;
 import com.njkremer.Sqlite.JoinExecutor.JoinType;
-import com.njkremer.Sqlite.utils.DateUtils;
 import com.njkremer.Sqlite.utils.SqliteUtils;
 
 /**
@@ -53,8 +45,9 @@ public class SqlExecutor<T> {
     public SqlExecutor<T> select(Class<T> clazz) throws DataConnectionException {
         reset();
         this.clazz = clazz;
-        queryParts.put(StatementParts.SELECT, String.format(SELECT, clazz.getSimpleName().toLowerCase()));
-        queryParts.put(StatementParts.FROM, String.format(FROM, clazz.getSimpleName().toLowerCase()));
+        metadata = EntityMetadata.forClass(clazz);
+        queryParts.put(StatementParts.SELECT, String.format(SELECT, metadata.getTableName()));
+        queryParts.put(StatementParts.FROM, String.format(FROM, metadata.getTableName()));
         statementType = StatementType.SELECT;
         return this;
     }
@@ -70,8 +63,9 @@ public class SqlExecutor<T> {
     public SqlExecutor<T> update(Object databaseObject) throws DataConnectionException {
         reset();
         clazz = (Class<T>) SqliteUtils.getClass(databaseObject);
+        metadata = EntityMetadata.forClass(clazz);
         sqlObject = databaseObject;
-        queryParts.put(StatementParts.UPDATE, String.format(UPDATE, clazz.getSimpleName().toLowerCase()));
+        queryParts.put(StatementParts.UPDATE, String.format(UPDATE, metadata.getTableName()));
         statementType = StatementType.UPDATE;
         return this;
     }
@@ -86,7 +80,8 @@ public class SqlExecutor<T> {
     public SqlExecutor<T> insert(T databaseObject) throws DataConnectionException {
         reset();
         clazz = (Class<T>) SqliteUtils.getClass(databaseObject);
-        queryParts.put(StatementParts.INSERT, String.format(INSERT, clazz.getSimpleName().toLowerCase()));
+        metadata = EntityMetadata.forClass(clazz);
+        queryParts.put(StatementParts.INSERT, String.format(INSERT, metadata.getTableName()));
         statementType = StatementType.INSERT;
         sqlObject = databaseObject;
         try {
@@ -108,8 +103,9 @@ public class SqlExecutor<T> {
     public SqlExecutor<T> delete(Class<T> clazz) throws DataConnectionException {
         reset();
         this.clazz = clazz;
+        metadata = EntityMetadata.forClass(clazz);
         queryParts.put(StatementParts.DELETE, DELETE);
-        queryParts.put(StatementParts.FROM, String.format(FROM, clazz.getSimpleName().toLowerCase()));
+        queryParts.put(StatementParts.FROM, String.format(FROM, metadata.getTableName()));
         statementType = StatementType.DELETE;
         return this;
     }
@@ -125,9 +121,10 @@ public class SqlExecutor<T> {
     public SqlExecutor<T> delete(T databaseObject) throws DataConnectionException {
         reset();
         clazz = (Class<T>) SqliteUtils.getClass(databaseObject);
+        metadata = EntityMetadata.forClass(clazz);
         sqlObject = databaseObject;
         queryParts.put(StatementParts.DELETE, DELETE);
-        queryParts.put(StatementParts.FROM, String.format(FROM, clazz.getSimpleName().toLowerCase()));
+        queryParts.put(StatementParts.FROM, String.format(FROM, metadata.getTableName()));
         statementType = StatementType.DELETE;
         return this;
     }
@@ -156,6 +153,8 @@ public class SqlExecutor<T> {
             firstJoin = false;
         }
         this.joinExecutor.join(leftClazz, leftField, rightClazz, rightField);
+        joinedTables.add(EntityMetadata.forClass(leftClazz).getTableName());
+        joinedTables.add(EntityMetadata.forClass(rightClazz).getTableName());
         String join = joinExecutor.getQuery();
         queryParts.put(StatementParts.JOIN, queryParts.get(StatementParts.JOIN).concat(join));
         return this;
@@ -222,8 +221,9 @@ public class SqlExecutor<T> {
      * <p>See {@link OneToMany} for more information on setting up this relationship.
      */
     public SqlExecutor<T> from(Object object) throws DataConnectionException {
-        String objectPk = this.getPkField(object.getClass());
-        String thisFk = this.getFkField(object.getClass());
+        Class<?> objectClazz = SqliteUtils.getClass(object);
+        String objectPk = this.getPkField(objectClazz);
+        String thisFk = this.getFkField(objectClazz);
         
         if (objectPk == null) {
             throw new DataConnectionException("pkField on the target object couldn't be found... it's probably not declared on the object. To use this method the target object must have a PrimaryKey defined.");
@@ -232,7 +232,7 @@ public class SqlExecutor<T> {
             throw new DataConnectionException(String.format("A OneToMany was found, however it wasn't a list of type %s", this.clazz.getName()));
         }
 
-        return join(object.getClass(), objectPk, this.clazz, thisFk);
+        return join(objectClazz, objectPk, this.clazz, thisFk);
     }
 
     /**
@@ -276,7 +276,7 @@ public class SqlExecutor<T> {
             }
         }
         whereDefined = true;
-        queryParts.put(StatementParts.WHERE, String.format(WHERE, clazz.getSimpleName().toLowerCase(), field));
+        queryParts.put(StatementParts.WHERE, String.format(WHERE, EntityMetadata.forClass(clazz).getTableName(), field));
         return whereExecutor;
     }
 
@@ -307,7 +307,7 @@ public class SqlExecutor<T> {
      * @return A {@linkplain WhereExecutor} to be used in conjunction with the <b>and</b> method.
      */
     public WhereExecutor<T> and(Class<?> clazz, String field) {
-        queryParts.put(StatementParts.WHERE, queryParts.get(StatementParts.WHERE).concat(String.format(AND, clazz.getSimpleName().toLowerCase(), field)));
+        queryParts.put(StatementParts.WHERE, queryParts.get(StatementParts.WHERE).concat(String.format(AND, EntityMetadata.forClass(clazz).getTableName(), field)));
         return whereExecutor;
     }
     
@@ -334,7 +334,7 @@ public class SqlExecutor<T> {
      * @return A {@linkplain WhereExecutor} to be used in conjunction with the <b>and</b> method.
      */
     public WhereExecutor<T> or(Class<?> clazz, String field) {
-        queryParts.put(StatementParts.WHERE, queryParts.get(StatementParts.WHERE).concat(String.format(OR, clazz.getSimpleName().toLowerCase(), field)));
+        queryParts.put(StatementParts.WHERE, queryParts.get(StatementParts.WHERE).concat(String.format(OR, EntityMetadata.forClass(clazz).getTableName(), field)));
         return whereExecutor;
     }
 
@@ -343,11 +343,16 @@ public class SqlExecutor<T> {
      * ascending order by the field passed in. If you want to sort in descending order, use
      * {@linkplain SqlExecutor#desc()} after calling this method.
      * 
+     * <p> This can be called more than once to sort by more than one field, e.g.
+     * <code>orderBy("lastName").asc().orderBy("age").desc()</code> sorts by last name and then, for the objects
+     * with the same last name, by age.
+     * 
      * @param field The field of the object/database table you want to sort the resulting list by.
      * @return A {@linkplain SqlExecutor} used for function chaining.
      */
     public SqlExecutor<T> orderBy(String field) {
-        queryParts.put(StatementParts.ORDER_BY, String.format(ORDER_BY, field));
+        orderings.add(new Ordering(field));
+        updateOrderBy();
         return this;
     }
 
@@ -358,7 +363,8 @@ public class SqlExecutor<T> {
      * @return A {@linkplain SqlExecutor} used for function chaining.
      */
     public SqlExecutor<T> asc() {
-        queryParts.put(StatementParts.ORDER_BY, queryParts.get(StatementParts.ORDER_BY).concat(ASC));
+        orderings.get(orderings.size() - 1).direction = ASC;
+        updateOrderBy();
         return this;
     }
 
@@ -368,7 +374,101 @@ public class SqlExecutor<T> {
      * @return A {@linkplain SqlExecutor} used for function chaining.
      */
     public SqlExecutor<T> desc() {
-        queryParts.put(StatementParts.ORDER_BY, queryParts.get(StatementParts.ORDER_BY).concat(DESC));
+        orderings.get(orderings.size() - 1).direction = DESC;
+        updateOrderBy();
+        return this;
+    }
+
+    /**
+     * Loads the objects of the passed in {@linkplain OneToMany} relationship for all of the Objects returned by
+     * {@linkplain #getList()} or {@linkplain #getFirst()} up front, rather than querying for them one Object at a time
+     * when their getter is called. The related objects are loaded with a single
+     * <code>where fk in (...)</code> query (or one per 999 Objects), so listing N Objects with their related objects
+     * takes 2 queries instead of N + 1.
+     * 
+     * <p> This can be called more than once to include more than one relationship.
+     * 
+     * @param field The name of the {@linkplain OneToMany} field to load.
+     * @return A {@linkplain SqlExecutor} used for function chaining.
+     * @throws DataConnectionException If the field isn't a {@linkplain OneToMany} relationship.
+     */
+    public SqlExecutor<T> include(String field) throws DataConnectionException {
+        Relationship relationship = metadata.getRelationships().get(field);
+        if (relationship == null) {
+            throw new DataConnectionException(String.format("No OneToMany relationship named %s could be found on %s", field, clazz.getSimpleName()));
+        }
+        includes.add(relationship);
+        return this;
+    }
+
+    /**
+     * Limits the number of Objects the query returns.
+     * 
+     * @param limit The maximum number of Objects to return.
+     * @return A {@linkplain SqlExecutor} used for function chaining.
+     */
+    public SqlExecutor<T> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit can't be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Skips the given number of Objects at the start of the results of the query. This is usually used together with
+     * {@linkplain #orderBy(String)} and {@linkplain #limit(int)} to get a page of the results.
+     * 
+     * <p> Note that SQLite still has to go through all of the skipped rows, so the deeper the page the slower the
+     * query is. To page through a lot of results use {@linkplain #after(Object...)} instead.
+     * 
+     * @param offset The number of Objects to skip.
+     * @return A {@linkplain SqlExecutor} used for function chaining.
+     */
+    public SqlExecutor<T> offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("The offset can't be negative");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Only returns the Objects that come after the passed in sort key in the order given by
+     * {@linkplain #orderBy(String)}. This is used to page through the results of a query (keyset pagination) by
+     * passing in the sort key of the last Object of the previous page, along with a {@linkplain #limit(int)}. Unlike
+     * with {@linkplain #offset(int)} the database can seek straight to the start of the page with an index, so every
+     * page is as fast as the first one.
+     * 
+     * <p> To make the order unique the primary key is added as the last field to sort by, if it isn't sorted by
+     * already, so the sort key is the values of each of the orderBy fields followed by the primary key. For example:
+     * 
+     * <pre>
+     * SqlStatement.select(User.class).orderBy("name").after(lastUser.getName(), lastUser.getId()).limit(20).getList();
+     * </pre>
+     * 
+     * <p> The fields being sorted by shouldn't be null, since null can't be compared with.
+     * 
+     * @param lastSortKey The values of the fields being sorted by of the last Object of the previous page.
+     * @return A {@linkplain SqlExecutor} used for function chaining.
+     * @see #after(Object)
+     */
+    public SqlExecutor<T> after(Object... lastSortKey) {
+        this.lastSortKey = lastSortKey;
+        this.lastObject = null;
+        return this;
+    }
+
+    /**
+     * The same as {@linkplain #after(Object...)} except the sort key is read off of the passed in Object, which is
+     * usually the last Object of the previous page.
+     * 
+     * @param lastObject The last Object of the previous page.
+     * @return A {@linkplain SqlExecutor} used for function chaining.
+     */
+    public SqlExecutor<T> after(T lastObject) {
+        this.lastObject = lastObject;
+        this.lastSortKey = null;
         return this;
     }
 
@@ -376,10 +476,33 @@ public class SqlExecutor<T> {
      * Used to end a {@linkplain SqlStatement#update(Object) update}/{@linkplain SqlStatement#insert(Object)
      * insert}/{@linkplain SqlStatement#delete(Class) delete} {@linkplain SqlStatement}.
      * 
+     * <p>If {@linkplain DataConnectionManager#enableWriteBehind(int, long, int) write behind} is turned on, an insert
+     * or update that isn't in a transaction is only queued, and this returns before it's written. Use
+     * {@linkplain #executeAsync()} to find out when it has been written, or if it failed.
+     * 
      * @throws DataConnectionException
      */
     public void execute() throws DataConnectionException {
-        executeStatement();
+        WriteBehindQueue queue = getWriteBehindQueue();
+        if (queue != null) {
+            writeBehind(queue);
+            return;
+        }
+        executeNow();
+    }
+
+    /**
+     * Runs the insert/update/delete on the calling thread, even if write behind is turned on.
+     * 
+     * @throws DataConnectionException
+     */
+    void executeNow() throws DataConnectionException {
+        try {
+            executeStatement();
+        }
+        finally {
+            releaseStatement();
+        }
     }
 
     /**
@@ -390,14 +513,32 @@ public class SqlExecutor<T> {
      */
     public int getCount() throws DataConnectionException {
         queryParts.put(StatementParts.SELECT, SELECT_COUNT);
-        queryParts.put(StatementParts.FROM, String.format(FROM, clazz.getSimpleName().toLowerCase()));
-        executeStatement();
+        queryParts.put(StatementParts.FROM, String.format(FROM, metadata.getTableName()));
         try {
-            return processCountResults();
+            QueryCache cache = DataConnectionManager.getQueryCache();
+            QueryCache.Key key = getQueryCacheKey(COUNT_RESULT);
+            String[] tables = getTables();
+            long[] generations = null;
+            if (key != null) {
+                Integer count = (Integer) cache.get(key);
+                if (count != null) {
+                    return count;
+                }
+                generations = cache.getGenerations(tables);
+            }
+            executeStatement();
+            int count = processCountResults();
+            if (key != null) {
+                cache.put(key, count, tables, generations);
+            }
+            return count;
         }
         catch (SQLException e) {
             throw new DataConnectionException("Could not process the count results of the query.", e);
         }
+        finally {
+            releaseStatement();
+        }
     }
 
     /**
@@ -408,28 +549,243 @@ public class SqlExecutor<T> {
      * @return A {@linkplain List} of Objects of type T that is the result from querying the database.
      * @throws DataConnectionException
      */
+    @SuppressWarnings("unchecked")
     public List<T> getList() throws DataConnectionException {
         try {
-            queryParts.put(StatementParts.SELECT, String.format(SELECT, clazz.getSimpleName().toLowerCase()));
+            queryParts.put(StatementParts.SELECT, String.format(SELECT, metadata.getTableName()));
+            QueryCache cache = DataConnectionManager.getQueryCache();
+            QueryCache.Key key = isCacheable(metadata) ? getQueryCacheKey(LIST_RESULT + clazz.getName()) : null;
+            String[] tables = getTables();
+            long[] generations = null;
+            if (key != null) {
+                List<Object[]> rows = (List<Object[]>) cache.get(key);
+                if (rows != null) {
+                    return processCachedResults(rows);
+                }
+                generations = cache.getGenerations(tables);
+            }
             executeStatement();
-            return processResults();
+            List<T> objects = processResults();
+            // The objects of a session may have been changed since they were read, so they aren't cached.
+            if (key != null && Session.getCurrent() == null) {
+                List<Object[]> rows = new ArrayList<Object[]>(objects.size());
+                for (T object : objects) {
+                    rows.add(PrimaryKeyCache.readValues(metadata.getColumns(), object));
+                }
+                cache.put(key, rows, tables, generations);
+            }
+            return objects;
         }
         catch (Exception e) {
             throw new DataConnectionException("An error occured when trying to get the list of " + clazz.getSimpleName() + " objects", e);
         }
+        finally {
+            releaseStatement();
+        }
     }
     
+    /**
+     * Returns a {@linkplain ResultIterator} over the Objects of type T that result from the query built up with the
+     * {@linkplain SqlStatement}/{@linkplain SqlExecutor}. Unlike {@linkplain #getList()} the rows are only read from
+     * the database as the iterator is advanced, so this should be used for queries whose results are too large to
+     * hold in memory.
+     * 
+     * <p> The iterator holds on to the database connection until it has been read to the end or is closed, so it
+     * should always be closed in a finally block. See {@linkplain ResultIterator} for more information.
+     * 
+     * @return A {@linkplain ResultIterator} of the Objects of type T that result from querying the database.
+     * @throws DataConnectionException
+     */
+    public ResultIterator<T> iterate() throws DataConnectionException {
+        final Class<T> type = clazz;
+        final EntityMetadata entityMetadata = metadata;
+        try {
+            queryParts.put(StatementParts.SELECT, String.format(SELECT, metadata.getTableName()));
+            executeStatement();
+            final ColumnPlan plan = ColumnPlan.forEntity(metadata, resultSet.getMetaData());
+            final Session session = Session.getCurrent();
+            ResultIterator<T> iterator = new ResultIterator<T>(connection, statement, resultSet, event) {
+                T readRow(ResultSet resultSet) throws Exception {
+                    return readObject(entityMetadata, type, plan, resultSet, null, session);
+                }
+            };
+            handOffStatement();
+            return iterator;
+        }
+        catch (Exception e) {
+            throw new DataConnectionException("An error occured when trying to iterate over the " + type.getSimpleName() + " objects", e);
+        }
+        finally {
+            // Does nothing if the iterator took over the statement.
+            releaseStatement();
+        }
+    }
+
+    /**
+     * Passes each of the Objects of type T that result from the query built up with the
+     * {@linkplain SqlStatement}/{@linkplain SqlExecutor} to the handler as it's read from the database, rather than
+     * collecting them into a {@linkplain List}.
+     * 
+     * @param handler The handler to pass each object to.
+     * @throws DataConnectionException
+     * @see #forEach(RowHandler, boolean)
+     */
+    public void forEach(RowHandler<T> handler) throws DataConnectionException {
+        forEach(handler, false);
+    }
+
+    /**
+     * Passes each of the Objects of type T that result from the query built up with the
+     * {@linkplain SqlStatement}/{@linkplain SqlExecutor} to the handler as it's read from the database.
+     * 
+     * <p> If reuseInstance is true then a single instance of T is created and every row is read into it, so
+     * scanning a table doesn't create an object per row. This is meant for aggregating over the rows: the handler
+     * must not hold on to the object, since it's overwritten by the next row, and the object isn't wrapped in a
+     * proxy, so its {@linkplain com.njkremer.Sqlite.Annotations.OneToMany} relationships aren't faulted in.
+     * 
+     * <p> The database connection is held until every row has been handled.
+     * 
+     * @param handler The handler to pass each object to.
+     * @param reuseInstance true to read every row into the same instance of T.
+     * @throws DataConnectionException If the query fails or the handler throws.
+     */
+    public void forEach(RowHandler<T> handler, boolean reuseInstance) throws DataConnectionException {
+        try {
+            queryParts.put(StatementParts.SELECT, String.format(SELECT, metadata.getTableName()));
+            executeStatement();
+            ColumnPlan plan = ColumnPlan.forEntity(metadata, resultSet.getMetaData());
+
+            T object = reuseInstance ? newPlainObject(clazz) : null;
+            Session session = Session.getCurrent();
+            while (resultSet.next()) {
+                if (reuseInstance) {
+                    plan.read(object, resultSet);
+                    handler.handle(object);
+                }
+                else {
+                    handler.handle(readObject(metadata, clazz, plan, resultSet, null, session));
+                }
+                rowsRead++;
+            }
+        }
+        catch (DataConnectionException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new DataConnectionException("An error occured when trying to go through the " + clazz.getSimpleName() + " objects", e);
+        }
+        finally {
+            releaseStatement();
+        }
+    }
+
     /**
      * A convenience method to return the first object of a given query which would normally be returned by {@link SqlExecutor#getList}.
+     * The query is limited to one row, so only the first object is read from the database.
      * @return An object of type T that is the result of querying the database.
      * @throws DataConnectionException
      */
     public T getFirst() throws DataConnectionException {
+        if (limit == null || limit > 1) {
+            limit = 1;
+        }
         List<T> items = getList();
         
         return items.size() > 0 ? items.get(0) : null;
     }
 
+    /**
+     * Looks up the object of the passed in class with the passed in primary key. If the
+     * {@linkplain DataConnectionManager#setPrimaryKeyCacheSize(int) primary key cache} is turned on the row is read
+     * from it when possible, and cached after it's read from the database otherwise.
+     * 
+     * @param clazz The class of the object, which must have a {@linkplain PrimaryKey} defined.
+     * @param primaryKey The primary key of the object.
+     * @return The object, or null if there isn't one with the primary key.
+     * @throws DataConnectionException
+     */
+    static <T> T findById(Class<T> clazz, Object primaryKey) throws DataConnectionException {
+        EntityMetadata metadata = EntityMetadata.forClass(clazz);
+        ColumnMetadata primaryKeyColumn = metadata.getPrimaryKey();
+        if (primaryKeyColumn == null) {
+            throw new DataConnectionException("pkField couldn't be found... it's probably not declared on the object.");
+        }
+
+        Session session = Session.getCurrent();
+        if (session != null && primaryKey != null) {
+            T object = session.get(clazz, primaryKey);
+            if (object != null) {
+                return object;
+            }
+        }
+
+        PrimaryKeyCache cache = DataConnectionManager.getPrimaryKeyCache();
+        boolean useCache = primaryKey != null && cache.isEnabled() && !DataConnectionManager.isInTransaction() && isCacheable(metadata);
+        String table = metadata.getTableName();
+        Object key = PrimaryKeyCache.normalize(primaryKey);
+        long generation = 0;
+        if (useCache) {
+            Object[] values = cache.get(table, key);
+            if (values != null) {
+                T object = newObject(metadata, clazz, null);
+                for (int i = 0; i < values.length; i++) {
+                    metadata.getColumns().get(i).setValue(object, values[i]);
+                }
+                if (session != null) {
+                    session.put(clazz, key, object);
+                }
+                return object;
+            }
+            generation = cache.getGeneration(table);
+        }
+
+        T object = new SqlExecutor<T>().select(clazz).where(primaryKeyColumn.getName()).eq(primaryKey).getFirst();
+        if (useCache && object != null) {
+            cache.put(table, key, PrimaryKeyCache.readValues(metadata.getColumns(), object), generation);
+        }
+        return object;
+    }
+
+    /**
+     * Queues this insert/update on the write behind queue. The values of an update's columns are read now, the same
+     * as an insert's were when it was created, so that changes made to the object after queueing it aren't written.
+     */
+    private Future<Void> writeBehind(WriteBehindQueue queue) throws DataConnectionException {
+        defineWhereByPrimaryKey();
+        return queue.add(this);
+    }
+
+    /**
+     * Inserts and updates that are part of a transaction have to run on the transaction's thread, so they're never
+     * written behind.
+     */
+    private WriteBehindQueue getWriteBehindQueue() {
+        if (statementType != StatementType.INSERT && statementType != StatementType.UPDATE) {
+            return null;
+        }
+        WriteBehindQueue queue = DataConnectionManager.getWriteBehindQueue();
+        return queue == null || DataConnectionManager.isInTransaction() ? null : queue;
+    }
+
+    private <R> Future<R> submit(Callable<R> work) {
+        if (DataConnectionManager.isInTransaction()) {
+            throw new IllegalStateException("Statements can't be run asynchronously in a transaction, since they wouldn't be part of it");
+        }
+        return DataConnectionManager.getAsyncExecutor().submit(work);
+    }
+
+    /**
+     * A row can only be cached if every column can be both read and written, and copied, which a stream can't be.
+     */
+    private static boolean isCacheable(EntityMetadata metadata) {
+        for (ColumnMetadata column : metadata.getColumns()) {
+            if (column.getGetter() == null || column.getSetter() == null || column.getType() == InputStream.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns a {@linkplain List} of {@linkplain Map Maps} which map from a field/database table column for the
      * resulting query along with the passed in {@linkplain ColumnExpression}.
@@ -442,25 +798,322 @@ public class SqlExecutor<T> {
      * {@linkplain ColumnExpression}.
      * @throws DataConnectionException
      */
+    @SuppressWarnings("unchecked")
     public List<Map<String, Object>> getColumns(ColumnExpression columnExpression) throws DataConnectionException {
         this.queryParts.put(StatementParts.SELECT, columnExpression.getQuery());
-        executeStatement();
         try {
-            return processMapResults();
+            QueryCache cache = DataConnectionManager.getQueryCache();
+            QueryCache.Key key = getQueryCacheKey(COLUMNS_RESULT);
+            String[] tables = getTables();
+            long[] generations = null;
+            if (key != null) {
+                List<Map<String, Object>> rows = (List<Map<String, Object>>) cache.get(key);
+                if (rows != null) {
+                    return copyMaps(rows);
+                }
+                generations = cache.getGenerations(tables);
+            }
+            executeStatement();
+            List<Map<String, Object>> rows = processMapResults();
+            if (key != null) {
+                cache.put(key, copyMaps(rows), tables, generations);
+            }
+            return rows;
         }
         catch (SQLException e) {
             throw new DataConnectionException("Could not process the map results of the query.", e);
         }
+        finally {
+            releaseStatement();
+        }
     }
-    
-    
+
+    /**
+     * Returns a {@linkplain ResultIterator} over {@linkplain Map Maps} of the columns specified by the passed in
+     * {@linkplain ColumnExpression}, the same as the ones {@linkplain #getColumns(ColumnExpression)} returns, except
+     * that the rows are only read from the database as the iterator is advanced.
+     * 
+     * <p> The iterator holds on to the database connection until it has been read to the end or is closed, so it
+     * should always be closed in a finally block. See {@linkplain ResultIterator} for more information.
+     * 
+     * @param columnExpression A map expression to specify what columns you want back from the database.
+     * @return A {@linkplain ResultIterator} of {@linkplain Map Maps} which are the result of the query with the passed
+     * in {@linkplain ColumnExpression}.
+     * @throws DataConnectionException
+     */
+    public ResultIterator<Map<String, Object>> iterateColumns(ColumnExpression columnExpression) throws DataConnectionException {
+        this.queryParts.put(StatementParts.SELECT, columnExpression.getQuery());
+        try {
+            executeStatement();
+            final ColumnPlan plan = ColumnPlan.forMap(resultSet.getMetaData());
+            ResultIterator<Map<String, Object>> iterator = new ResultIterator<Map<String, Object>>(connection, statement, resultSet, event) {
+                Map<String, Object> readRow(ResultSet resultSet) throws Exception {
+                    return plan.readMap(resultSet);
+                }
+            };
+            handOffStatement();
+            return iterator;
+        }
+        catch (SQLException e) {
+            throw new DataConnectionException("Could not process the map results of the query.", e);
+        }
+        finally {
+            // Does nothing if the iterator took over the statement.
+            releaseStatement();
+        }
+    }
+
+    /**
+     * Runs {@linkplain #execute()} on the async executor instead of the calling thread. See
+     * {@linkplain #getListAsync()}. If {@linkplain DataConnectionManager#enableWriteBehind(int, long, int) write
+     * behind} is turned on, an insert or update is put on the write behind queue instead, and the future completes
+     * once the batch it's written in has been committed.
+     * 
+     * @return A {@linkplain Future} that completes once the statement has been executed.
+     * @throws IllegalStateException If the calling thread is in a transaction.
+     * @throws DataConnectionException If the write behind queue is closed, or the thread is interrupted while waiting
+     * for room on it.
+     */
+    public Future<Void> executeAsync() throws DataConnectionException {
+        WriteBehindQueue queue = getWriteBehindQueue();
+        if (queue != null) {
+            return writeBehind(queue);
+        }
+        return submit(new Callable<Void>() {
+            public Void call() throws DataConnectionException {
+                execute();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Runs {@linkplain #getList()} on the async executor, see
+     * {@linkplain DataConnectionManager#setAsyncExecutor(java.util.concurrent.ExecutorService)}, instead of the
+     * calling thread, so that a thread can start several independent queries and wait on all of them at once. The
+     * query runs on its own connection on the executor's thread, so the calling thread shouldn't change this
+     * {@linkplain SqlExecutor} after calling this.
+     * 
+     * <p>Since the query doesn't run on the calling thread, it can't be part of the calling thread's transaction,
+     * which is why calling this in a transaction throws, and the objects it reads aren't put in the calling thread's
+     * {@linkplain Session}.
+     * 
+     * @return A {@linkplain Future} of the results. If the query fails, {@linkplain Future#get()} throws an
+     * {@linkplain java.util.concurrent.ExecutionException} caused by the {@linkplain DataConnectionException}.
+     * @throws IllegalStateException If the calling thread is in a transaction.
+     */
+    public Future<List<T>> getListAsync() {
+        return submit(new Callable<List<T>>() {
+            public List<T> call() throws DataConnectionException {
+                return getList();
+            }
+        });
+    }
+
+    /**
+     * Runs {@linkplain #getFirst()} on the async executor instead of the calling thread. See
+     * {@linkplain #getListAsync()}.
+     * 
+     * @return A {@linkplain Future} of the first object, or of null if there isn't one.
+     * @throws IllegalStateException If the calling thread is in a transaction.
+     */
+    public Future<T> getFirstAsync() {
+        return submit(new Callable<T>() {
+            public T call() throws DataConnectionException {
+                return getFirst();
+            }
+        });
+    }
+
+    /**
+     * Runs {@linkplain #getCount()} on the async executor instead of the calling thread. See
+     * {@linkplain #getListAsync()}.
+     * 
+     * @return A {@linkplain Future} of the count.
+     * @throws IllegalStateException If the calling thread is in a transaction.
+     */
+    public Future<Integer> getCountAsync() {
+        return submit(new Callable<Integer>() {
+            public Integer call() throws DataConnectionException {
+                return getCount();
+            }
+        });
+    }
+
+    /**
+     * Runs {@linkplain #getColumns(ColumnExpression)} on the async executor instead of the calling thread. See
+     * {@linkplain #getListAsync()}.
+     * 
+     * @param columnExpression A map expression to specify what columns you want back from the database.
+     * @return A {@linkplain Future} of the rows.
+     * @throws IllegalStateException If the calling thread is in a transaction.
+     */
+    public Future<List<Map<String, Object>>> getColumnsAsync(final ColumnExpression columnExpression) {
+        return submit(new Callable<List<Map<String, Object>>>() {
+            public List<Map<String, Object>> call() throws DataConnectionException {
+                return getColumns(columnExpression);
+            }
+        });
+    }
+
+    /**
+     * Sets the number of rows the driver should fetch from the database at a time when reading the results of the
+     * query. This is only a hint, SQLite itself always steps through the results a row at a time.
+     * 
+     * @param fetchSize The number of rows to fetch at a time, 0 lets the driver decide.
+     * @return A {@linkplain SqlExecutor} used for function chaining.
+     */
+    public SqlExecutor<T> fetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("The fetch size can't be negative");
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
     String getQuery() throws DataConnectionException {
         StringBuilder builder = new StringBuilder();
+        boolean seeking = lastSortKey != null || lastObject != null;
         for (StatementParts key : queryParts.keySet()) {
+            if (key == StatementParts.ORDER_BY || (seeking && key == StatementParts.WHERE)) {
+                continue;
+            }
             builder.append(queryParts.get(key));
         }
+        if (seeking) {
+            // The keyset condition is and-ed onto the where clause, which may contain ors, so the where clause is
+            // put in parentheses.
+            String where = queryParts.get(StatementParts.WHERE);
+            if (where == null) {
+                builder.append("where ");
+            }
+            else {
+                builder.append("where (").append(where.substring("where ".length()).trim()).append(") and ");
+            }
+            builder.append(getKeysetCondition());
+        }
+        List<Ordering> effectiveOrderings = getEffectiveOrderings();
+        if (!effectiveOrderings.isEmpty()) {
+            builder.append(getOrderBy(effectiveOrderings));
+        }
+        if (limit != null || offset != null) {
+            // SQLite only allows an offset after a limit, a negative limit means there isn't one.
+            builder.append(LIMIT);
+            if (offset != null) {
+                builder.append(OFFSET);
+            }
+        }
         return builder.toString().trim().concat(";");
     }
+
+    /**
+     * @return The values of the parameters of the query, in the order they appear in it.
+     * @throws DataConnectionException
+     */
+    List<Object> getParameters() throws DataConnectionException {
+        if (lastSortKey == null && lastObject == null && limit == null && offset == null) {
+            return values;
+        }
+        List<Object> parameters = new ArrayList<Object>(values);
+        if (lastSortKey != null || lastObject != null) {
+            parameters.addAll(getKeysetValues());
+        }
+        if (limit != null || offset != null) {
+            parameters.add(limit == null ? -1 : limit);
+            if (offset != null) {
+                parameters.add(offset);
+            }
+        }
+        return parameters;
+    }
+
+    private void updateOrderBy() {
+        queryParts.put(StatementParts.ORDER_BY, getOrderBy(orderings));
+    }
+
+    private static String getOrderBy(List<Ordering> orderings) {
+        StringBuilder fields = new StringBuilder();
+        for (Ordering ordering : orderings) {
+            if (fields.length() > 0) {
+                fields.append(", ");
+            }
+            fields.append(ordering.field);
+            if (ordering.direction != null) {
+                fields.append(" ").append(ordering.direction.trim());
+            }
+        }
+        return String.format(ORDER_BY, fields);
+    }
+
+    /**
+     * @return The fields being sorted by, followed by the primary key if a keyset is being used and the primary key
+     * isn't already sorted by.
+     */
+    private List<Ordering> getEffectiveOrderings() {
+        if ((lastSortKey == null && lastObject == null) || metadata == null || metadata.getPrimaryKey() == null) {
+            return orderings;
+        }
+        String primaryKey = metadata.getPrimaryKey().getName();
+        for (Ordering ordering : orderings) {
+            if (getColumnName(ordering.field).equals(primaryKey)) {
+                return orderings;
+            }
+        }
+        List<Ordering> effectiveOrderings = new ArrayList<Ordering>(orderings);
+        effectiveOrderings.add(new Ordering(metadata.getTableName() + "." + primaryKey));
+        return effectiveOrderings;
+    }
+
+    /**
+     * SQLite 3.7 doesn't support row values, so <code>(a, b) > (?, ?)</code> is written out as
+     * <code>(a > ?) or (a = ? and b > ?)</code>, flipping the comparison for the fields sorted in descending order.
+     */
+    private String getKeysetCondition() throws DataConnectionException {
+        List<Ordering> effectiveOrderings = getEffectiveOrderings();
+        if (effectiveOrderings.isEmpty()) {
+            throw new DataConnectionException("orderBy must be used to say what the sort key passed to after is");
+        }
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < effectiveOrderings.size(); i++) {
+            condition.append(i == 0 ? "(" : " or (");
+            for (int j = 0; j < i; j++) {
+                condition.append(effectiveOrderings.get(j).field).append(" = ? and ");
+            }
+            Ordering ordering = effectiveOrderings.get(i);
+            condition.append(ordering.field).append(DESC.equals(ordering.direction) ? " < ?" : " > ?").append(")");
+        }
+        return condition.append(") ").toString();
+    }
+
+    private List<Object> getKeysetValues() throws DataConnectionException {
+        List<Ordering> effectiveOrderings = getEffectiveOrderings();
+        List<Object> sortKey = new ArrayList<Object>(effectiveOrderings.size());
+        if (lastObject != null) {
+            for (Ordering ordering : effectiveOrderings) {
+                ColumnMetadata column = metadata.getColumn(getColumnName(ordering.field));
+                if (column == null) {
+                    throw new DataConnectionException(String.format("The sort key can't be read from the object since %s isn't a field of %s", ordering.field, clazz.getSimpleName()));
+                }
+                sortKey.add(column.getValue(lastObject));
+            }
+        }
+        else {
+            if (lastSortKey.length != effectiveOrderings.size()) {
+                throw new DataConnectionException(String.format("The sort key passed to after must have a value for each of %s", effectiveOrderings));
+            }
+            sortKey.addAll(Arrays.asList(lastSortKey));
+        }
+
+        List<Object> keysetValues = new ArrayList<Object>();
+        for (int i = 0; i < sortKey.size(); i++) {
+            keysetValues.addAll(sortKey.subList(0, i + 1));
+        }
+        return keysetValues;
+    }
+
+    private static String getColumnName(String field) {
+        return field.substring(field.lastIndexOf('.') + 1);
+    }
     
     List<Object> getValues() {
         return this.values;
@@ -470,246 +1123,371 @@ public class SqlExecutor<T> {
         return this.queryParts;
     }
 
-    private List<T> processResults() throws SQLException, InstantiationException, IllegalAccessException, SecurityException, IllegalArgumentException, NoSuchMethodException, InvocationTargetException, NoSuchFieldException, DataConnectionException {
+    private List<T> processResults() throws SQLException, DataConnectionException {
         List<T> objects = new ArrayList<T>();
-        int columnCount = resultSet.getMetaData().getColumnCount();
-        ArrayList<String> columns = new ArrayList<String>();
-        ArrayList<String> types = new ArrayList<String>();
+        ColumnPlan plan = ColumnPlan.forEntity(metadata, resultSet.getMetaData());
+        int batchSize = DataConnectionManager.getFaultingBatchSize();
+        FaultingBatch batch = metadata.hasRelationships() && batchSize > 1 ? new FaultingBatch(batchSize) : null;
+        Session session = Session.getCurrent();
 
-        // Get column data
-        for (int i = 1; i <= columnCount; i++) {
-            columns.add(resultSet.getMetaData().getColumnName(i));
-            types.add(resultSet.getMetaData().getColumnTypeName(i));
+        while (resultSet.next()) {
+            objects.add(readObject(metadata, clazz, plan, resultSet, batch, session));
+            rowsRead++;
         }
+        resultSet.close();
 
-        while (resultSet.next()) {
-            T object = clazz.newInstance();
-            for (int i = 0; i < columnCount; i++) {
-                processColumn(object, columns.get(i), resultSet);
+        storeIncludes(objects);
+        return objects;
+    }
+
+    /**
+     * Creates the objects of a result from the query cache, the same way {@linkplain #processResults()} does from the
+     * result set.
+     * 
+     * @param rows The values of the columns of each object.
+     */
+    private List<T> processCachedResults(List<Object[]> rows) throws DataConnectionException {
+        List<T> objects = new ArrayList<T>(rows.size());
+        List<ColumnMetadata> columns = metadata.getColumns();
+        int primaryKeyIndex = columns.indexOf(metadata.getPrimaryKey());
+        int batchSize = DataConnectionManager.getFaultingBatchSize();
+        FaultingBatch batch = metadata.hasRelationships() && batchSize > 1 ? new FaultingBatch(batchSize) : null;
+        Session session = Session.getCurrent();
+
+        for (Object[] row : rows) {
+            Object primaryKey = session == null || primaryKeyIndex == -1 ? null : row[primaryKeyIndex];
+            T object = primaryKey == null ? null : session.get(clazz, primaryKey);
+            if (object == null) {
+                object = newObject(metadata, clazz, batch);
+                Object[] values = PrimaryKeyCache.copy(row);
+                for (int i = 0; i < values.length; i++) {
+                    columns.get(i).setValue(object, values[i]);
+                }
+                if (primaryKey != null) {
+                    session.put(clazz, primaryKey, object);
+                }
             }
-            objects.add(createProxyObject(object));
+            objects.add(object);
         }
-        resultSet.close();
+
+        storeIncludes(objects);
         return objects;
     }
 
+    /**
+     * Loads the relationships passed to {@linkplain #include(String)} and stores them on the passed in objects.
+     */
+    private void storeIncludes(List<T> objects) throws DataConnectionException {
+        if (includes.isEmpty()) {
+            return;
+        }
+        List<Map<Relationship, List<?>>> loadedRelationships = loadIncludes(objects);
+        for (int i = 0; i < objects.size(); i++) {
+            FaultingInterceptor interceptor = ProxyClass.getInterceptor(objects.get(i));
+            for (Map.Entry<Relationship, List<?>> loaded : loadedRelationships.get(i).entrySet()) {
+                interceptor.store(loaded.getKey(), loaded.getValue(), true);
+            }
+        }
+    }
+
+    /**
+     * @param kind What the result of the query is read into.
+     * @return The key of the query in the query cache, or null if the query cache shouldn't be used. Nothing is
+     * cached in a transaction, since what it writes isn't visible to the other connections until it commits.
+     */
+    private QueryCache.Key getQueryCacheKey(String kind) throws DataConnectionException {
+        if (!DataConnectionManager.getQueryCache().isEnabled() || DataConnectionManager.isInTransaction()) {
+            return null;
+        }
+        return new QueryCache.Key(kind, getQuery(), getParameters());
+    }
+
+    /**
+     * @return The tables the query reads from, including the joined ones.
+     */
+    private String[] getTables() {
+        Set<String> tables = new LinkedHashSet<String>();
+        tables.add(metadata.getTableName());
+        tables.addAll(joinedTables);
+        return tables.toArray(new String[tables.size()]);
+    }
+
+    private static List<Map<String, Object>> copyMaps(List<Map<String, Object>> maps) {
+        List<Map<String, Object>> copy = new ArrayList<Map<String, Object>>(maps.size());
+        for (Map<String, Object> map : maps) {
+            copy.add(new HashMap<String, Object>(map));
+        }
+        return copy;
+    }
+
+    /**
+     * Loads the related objects of every relationship passed to {@linkplain #include(String)} for all of the passed
+     * in objects, with one query per relationship (per 999 objects).
+     * 
+     * @return The related objects of each object, in the same order as the objects.
+     */
+    private List<Map<Relationship, List<?>>> loadIncludes(List<T> objects) throws DataConnectionException {
+        ColumnMetadata primaryKey = metadata.getPrimaryKey();
+        if (primaryKey == null) {
+            throw new DataConnectionException("A @PrimaryKey must be defined on " + clazz.getSimpleName() + " to include its relationships");
+        }
+        List<Object> keys = new ArrayList<Object>(objects.size());
+        Set<Object> distinctKeys = new LinkedHashSet<Object>();
+        for (T object : objects) {
+            Object key = PrimaryKeyCache.normalize(primaryKey.getValue(object));
+            keys.add(key);
+            distinctKeys.add(key);
+        }
+
+        List<Map<Relationship, List<?>>> loadedRelationships = new ArrayList<Map<Relationship, List<?>>>(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            loadedRelationships.add(new HashMap<Relationship, List<?>>());
+        }
+        for (Relationship relationship : includes) {
+            Map<Object, List<Object>> relatedByKey = loadRelatedObjects(relationship, new ArrayList<Object>(distinctKeys));
+            for (int i = 0; i < objects.size(); i++) {
+                List<Object> related = relatedByKey.get(keys.get(i));
+                loadedRelationships.get(i).put(relationship, related == null ? new ArrayList<Object>() : related);
+            }
+        }
+        return loadedRelationships;
+    }
+
+    /**
+     * @return The related objects grouped by their foreign key.
+     */
+    static Map<Object, List<Object>> loadRelatedObjects(Relationship relationship, List<Object> keys) throws DataConnectionException {
+        Map<Object, List<Object>> relatedByKey = new HashMap<Object, List<Object>>();
+        for (int start = 0; start < keys.size(); start += MAX_PARAMETERS) {
+            List<Object> chunk = keys.subList(start, Math.min(start + MAX_PARAMETERS, keys.size()));
+            List<?> relatedObjects = SqlStatement.select(relationship.getRelatedClassType()).where(relationship.getFk()).in(chunk).getList();
+            for (Object related : relatedObjects) {
+                Object key = PrimaryKeyCache.normalize(relationship.getForeignKeyColumn().getValue(related));
+                List<Object> group = relatedByKey.get(key);
+                if (group == null) {
+                    group = new ArrayList<Object>();
+                    relatedByKey.put(key, group);
+                }
+                group.add(related);
+            }
+        }
+        return relatedByKey;
+    }
+
     private int processCountResults() throws SQLException {
         int count = 0;
         while (resultSet.next()) {
             count = resultSet.getInt(1);
+            rowsRead++;
         }
         resultSet.close();
         return count;
     }
 
-    private List<Map<String, Object>> processMapResults() throws SQLException {
+    private List<Map<String, Object>> processMapResults() throws SQLException, DataConnectionException {
         List<Map<String, Object>> objects = new ArrayList<Map<String, Object>>();
-        int columnCount = resultSet.getMetaData().getColumnCount();
-        ArrayList<String> columns = new ArrayList<String>();
-        ArrayList<String> types = new ArrayList<String>();
-
-        // Get column data
-        for (int i = 1; i <= columnCount; i++) {
-            columns.add(resultSet.getMetaData().getColumnName(i));
-            types.add(resultSet.getMetaData().getColumnTypeName(i));
-        }
+        ColumnPlan plan = ColumnPlan.forMap(resultSet.getMetaData());
 
         while (resultSet.next()) {
-            Map<String, Object> map = new HashMap<String, Object>();
-            for (int i = 0; i < columnCount; i++) {
-                if (types.get(i).equals("text")) {
-                    map.put(columns.get(i), resultSet.getString(columns.get(i)));
-                }
-                else if (types.get(i).equals("float")) {
-                    map.put(columns.get(i), resultSet.getDouble(columns.get(i)));
-                }
-                else if (types.get(i).equals("integer")) {
-                    map.put(columns.get(i), resultSet.getInt(columns.get(i)));
-                }
-                else if (types.get(i).equals("blob")) {
-                    map.put(columns.get(i), resultSet.getBlob(columns.get(i)));
-                }
-                else if (types.get(i).equals("null")) {
-                    map.put(columns.get(i), null);
-                }
-            }
-            objects.add(map);
+            objects.add(plan.readMap(resultSet));
+            rowsRead++;
         }
         resultSet.close();
 
         return objects;
     }
 
-    private void prepareUpdate(String field) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException, DataConnectionException, SecurityException, NoSuchMethodException {
+    private void prepareUpdate(String field) throws DataConnectionException {
         boolean first = true;
         queryParts.put(StatementParts.SET, "");
-        for (Field classField : clazz.getDeclaredFields()) {
-            String methodName = (classField.getType() == Boolean.class ? "is" : "get") + SqliteUtils.capitalize(classField.getName());
-            String fieldName = classField.getName();
-
-            boolean fieldShouldBeInUpdateStatement = !classField.isAnnotationPresent(AutoIncrement.class) && !classField.isAnnotationPresent(OneToMany.class);
-            if (fieldShouldBeInUpdateStatement) {
-                try {
-                    Object value = clazz.getDeclaredMethod(methodName, (Class<?>[]) null).invoke(sqlObject, (Object[]) null);
-                    if (first) {
-                        queryParts.put(StatementParts.SET, queryParts.get(StatementParts.SET).concat(String.format(SET, fieldName)));
-                        values.add(value);
-                        first = false;
-                    }
-                    else {
-                        queryParts.put(StatementParts.SET, queryParts.get(StatementParts.SET).concat(String.format(SET_AND, fieldName)));
-                        values.add(value);
-                    }
-                }
-                catch (NoSuchMethodException e) {
-                    if (classField.getType() == Boolean.class && clazz.getDeclaredMethod(methodName.replaceFirst("is", "get"), (Class<?>[]) null) != null) {
-                        throw new DataConnectionException("boolean fields must name their fields isValue, not getValue");
-                    }
-                    // this means the field doesn't have a getter, so we're
-                    // moving on.
-                }
+        // Fields without a getter aren't persisted, so they aren't included in the update.
+        for (ColumnMetadata column : metadata.getPersistedColumns()) {
+            Object value = column.getValue(sqlObject);
+            if (first) {
+                queryParts.put(StatementParts.SET, queryParts.get(StatementParts.SET).concat(String.format(SET, column.getName())));
+                values.add(value);
+                first = false;
             }
+            else {
+                queryParts.put(StatementParts.SET, queryParts.get(StatementParts.SET).concat(String.format(SET_AND, column.getName())));
+                values.add(value);
+            }
+        }
+    }
+
+    private void prepareInsert() throws DataConnectionException {
+        List<ColumnMetadata> columns = metadata.getPersistedColumns();
+        for (ColumnMetadata column : columns) {
+            values.add(column.getValue(sqlObject));
+        }
+        queryParts.put(StatementParts.INSERT, queryParts.get(StatementParts.INSERT).concat(getInsertColumns(columns)));
+    }
+
+    /**
+     * Builds the statement used to insert an object of the passed in class, which is the same statement
+     * {@linkplain #insert(Object)} runs so that both share a cached prepared statement.
+     * 
+     * @param metadata The metadata of the class being inserted.
+     * @return The insert statement, with a parameter for each of the class's persisted columns.
+     * @throws DataConnectionException
+     */
+    static String getInsertQuery(EntityMetadata metadata) throws DataConnectionException {
+        return String.format(INSERT, metadata.getTableName()).concat(getInsertColumns(metadata.getPersistedColumns())).trim().concat(";");
+    }
+
+    /**
+     * Builds the statement used to update an object of the passed in class by its primary key. The parameters are the
+     * class's persisted columns followed by the primary key.
+     * 
+     * @param metadata The metadata of the class being updated, which must have a primary key.
+     * @return The update statement.
+     * @throws DataConnectionException
+     */
+    static String getUpdateByPrimaryKeyQuery(EntityMetadata metadata) throws DataConnectionException {
+        StringBuilder query = new StringBuilder(String.format(UPDATE, metadata.getTableName()));
+        boolean first = true;
+        for (ColumnMetadata column : metadata.getPersistedColumns()) {
+            query.append(String.format(first ? SET : SET_AND, column.getName()).trim());
+            first = false;
         }
+        query.append(" ").append(String.format(WHERE, metadata.getTableName(), metadata.getPrimaryKey().getName()));
+        return query.append("= ?;").toString();
     }
 
-    private void prepareInsert() throws IllegalArgumentException, IllegalAccessException, InvocationTargetException, SecurityException, NoSuchMethodException, DataConnectionException {
+    /**
+     * Builds the statement used to delete the rows of the passed in class with any of the given number of primary keys.
+     * 
+     * @param metadata The metadata of the class being deleted, which must have a primary key.
+     * @param keyCount The number of primary key parameters.
+     * @return The delete statement.
+     */
+    static String getDeleteByPrimaryKeysQuery(EntityMetadata metadata, int keyCount) {
+        StringBuilder query = new StringBuilder(DELETE).append(String.format(FROM, metadata.getTableName()));
+        query.append(String.format(WHERE, metadata.getTableName(), metadata.getPrimaryKey().getName())).append("in (");
+        for (int i = 0; i < keyCount; i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        return query.append(");").toString();
+    }
+
+    private static String getInsertColumns(List<ColumnMetadata> columns) {
         StringBuilder fieldsString = new StringBuilder("(");
         StringBuilder valuesString = new StringBuilder("values(");
 
         boolean first = true;
-        for (Field field : clazz.getDeclaredFields()) {
-            String methodName = field.getType() == Boolean.class ? "is" + SqliteUtils.capitalize(field.getName()) : "get" + SqliteUtils.capitalize(field.getName());
-            String fieldName = field.getName();
-            // We don't want to include the auto increment in the create statement.
-            boolean fieldShouldBeInCreateStatement = !field.isAnnotationPresent(AutoIncrement.class) && !field.isAnnotationPresent(OneToMany.class);
-            if (fieldShouldBeInCreateStatement) {
-                try {
-                    Object value = clazz.getDeclaredMethod(methodName, (Class<?>[]) null).invoke(sqlObject, (Object[]) null);
-                    if (!first) {
-                        fieldsString.append(", ");
-                        valuesString.append(", ");
-                    }
-                    else {
-                        first = false;
-                    }
-                    fieldsString.append(fieldName);
-                    valuesString.append("?");
-                    values.add(value);
-                }
-                catch (NoSuchMethodException nsme) {
-                    if (field.getType() == Boolean.class && clazz.getDeclaredMethod(methodName.replaceFirst("is", "get"), (Class<?>[]) null) != null) {
-                        throw new DataConnectionException("boolean fields must name their fields isValue, not getValue");
-                    }
-                    // this means the field doesn't have a getter, so we're
-                    // moving on.
-                }
+        // We don't want to include the auto increment in the create statement, which the persisted columns exclude.
+        for (ColumnMetadata column : columns) {
+            if (!first) {
+                fieldsString.append(", ");
+                valuesString.append(", ");
             }
+            else {
+                first = false;
+            }
+            fieldsString.append(column.getName());
+            valuesString.append("?");
         }
         fieldsString.append(") ");
         valuesString.append(") ");
-        queryParts.put(StatementParts.INSERT, queryParts.get(StatementParts.INSERT).concat(fieldsString.toString()).concat(valuesString.toString()));
+        return fieldsString.toString().concat(valuesString.toString());
     }
 
-    private void replaceValues() throws SQLException, DataConnectionException {
-        logger.trace(String.format(getQuery().replaceAll("%", "%%").replaceAll("\\?", "%s"), values.toArray()));
+    /**
+     * Binds the parameters of the statement and tells the {@linkplain StatementListener StatementListeners} that it's
+     * about to be executed. The SQL is only rendered with the parameters filled in if it's going to be traced.
+     * 
+     * @param query The SQL of the statement.
+     */
+    private void replaceValues(String query) throws SQLException, DataConnectionException {
+        List<Object> parameters = getParameters();
+        if (logger.isTraceEnabled()) {
+            logger.trace(StatementEvent.render(query, parameters));
+        }
 
-        for (int i = 0; i < values.size(); i++) {
-            Object object = values.get(i);
-            if (object instanceof String) {
-                statement.setString(i + 1, (String) object);
-            }
-            else if (object instanceof Float) {
-                statement.setFloat(i + 1, (Float) object);
-            }
-            else if (object instanceof Integer) {
-                statement.setInt(i + 1, (Integer) object);
-            }
-            else if (object instanceof Long) {
-                statement.setLong(i + 1, (Long) object);
-            }
-            else if (object instanceof Double) {
-                statement.setDouble(i + 1, (Double) object);
-            }
-            else if (object instanceof Date) {
-                String date = DateUtils.getDatabaseFormattedStringFromDate((Date) object);
-                statement.setObject(i + 1, date);
-            }
-            else if (object instanceof Boolean) {
-                statement.setBoolean(i + 1, (Boolean) object);
-            }
-            else if (object == null) {
-                statement.setNull(i + 1, Types.NULL);
-            }
-            else {
-                throw new RuntimeException(object.getClass() + " " + object.toString() + " is not a supported object");
-            }
+        for (int i = 0; i < parameters.size(); i++) {
+            setParameter(statement, i + 1, parameters.get(i));
         }
+        event = DataConnectionManager.statementStarting(statementType, query, parameters);
     }
 
-    @SuppressWarnings("unchecked")
-    private T createProxyObject(T object) throws DataConnectionException {
-        relationships = findRelationships();
-
-        if (relationships.size() > 0) {
-            String objectPk = this.getPkField(this.clazz);
-            if (objectPk == null) {
-                throw new DataConnectionException("Error when mapping relationships. PkField on the target object couldn't be found... it's probably not declared on the object. To use this method the target object must have a PrimaryKey defined.");
-            }
-            final Object pkValue = getPkValue(objectPk, object);
-
-            ProxyFactory proxyFactory = new ProxyFactory(object);
-            proxyFactory.addAdvice(new MethodInterceptor() {
-                public Object invoke(MethodInvocation methodInvocation) throws Throwable {
-                    String fieldName = SqliteUtils.lowercase(methodInvocation.getMethod().getName().replaceFirst("get", ""));
-                    if (relationships.keySet().contains(fieldName)) {
-                        // TODO Check to see if the internal variable for the collection is null, load if not. If it is
-                        // just return that already loaded instance, don't do more DB calls than needed.
-                        Relationship relationship = relationships.get(fieldName);
-                        return SqlStatement.select(relationship.getRelatedClassType()).where(relationship.getFk()).eq(pkValue).getList();
-                    }
-                    else if (methodInvocation.getMethod().getReturnType() == List.class) {
-                        throw new DataConnectionException(String.format("No OneToMany relationship could be found on a member variable that corresponds to the method %s", methodInvocation.getMethod().getName()));
-                    }
-                    return methodInvocation.getMethod().invoke(methodInvocation.getThis(), methodInvocation.getArguments());
-                }
-            });
-            return (T) proxyFactory.getProxy();
+    /**
+     * Binds a value to a parameter of a statement with the {@linkplain TypeConverter} of the value's class.
+     * 
+     * @param statement The statement to bind the value to.
+     * @param index The index of the parameter, starting at 1.
+     * @param object The value to bind.
+     * @throws SQLException
+     */
+    static void setParameter(PreparedStatement statement, int index, Object object) throws SQLException {
+        TypeConverters.bind(statement, index, object);
+    }
+
+    /**
+     * Reads the current row of the result set into a new object, unless the object of the row is already in the
+     * session, in which case it's returned without reading the rest of the row.
+     * 
+     * @param batch The objects to fault relationships in together with, or null to fault them in for just this one.
+     * @param session The session open on the thread that ran the query, or null if there isn't one.
+     */
+    private static <E> E readObject(EntityMetadata entityMetadata, Class<E> clazz, ColumnPlan plan, ResultSet resultSet, FaultingBatch batch, Session session) throws SQLException, DataConnectionException {
+        Object primaryKey = session == null ? null : plan.readPrimaryKey(resultSet);
+        if (primaryKey != null) {
+            E object = session.get(clazz, primaryKey);
+            if (object != null) {
+                return object;
+            }
+        }
+        E object = newObject(entityMetadata, clazz, batch);
+        plan.read(object, resultSet);
+        if (primaryKey != null) {
+            session.put(clazz, primaryKey, object);
         }
         return object;
     }
 
-    private Map<String, Relationship> findRelationships() throws DataConnectionException {
-        Map<String, Relationship> relationshipMap = new HashMap<String, Relationship>();
-
-        Field[] fields = this.clazz.getDeclaredFields();
-        for (Field field : fields) {
-            boolean hasAnnotation = field.isAnnotationPresent(OneToMany.class);
-            if (hasAnnotation) {
-                Class<?> targetClazz = field.getType();
-                if (targetClazz != List.class) {
-                    throw new DataConnectionException(String.format("The return type of a OneToMany relationship must be a List Type for field %s", field.getName()));
-                }
-                relationshipMap.put(field.getName(), new Relationship(field));
-            }
+    /**
+     * Creates a plain instance, rather than a proxy, of the passed in class with its no argument constructor.
+     */
+    private static <E> E newPlainObject(Class<E> clazz) throws DataConnectionException {
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        }
+        catch (Exception e) {
+            throw new DataConnectionException("Could not create an instance of " + clazz.getSimpleName() + ", it needs a public no argument constructor", e);
         }
+    }
 
-        return relationshipMap;
+    /**
+     * Creates a new object of the passed in class to read a row into. Objects of classes with
+     * {@linkplain OneToMany} relationships are created as an instance of their {@linkplain ProxyClass}, so that the
+     * relationships are faulted in the first time they're used.
+     * 
+     * @param batch The objects to fault relationships in together with, or null to fault them in for just this one.
+     */
+    private static <E> E newObject(EntityMetadata entityMetadata, Class<E> clazz, FaultingBatch batch) throws DataConnectionException {
+        if (!entityMetadata.hasRelationships()) {
+            return newPlainObject(clazz);
+        }
+        if (entityMetadata.getPrimaryKey() == null) {
+            throw new DataConnectionException("Error when mapping relationships. PkField on the target object couldn't be found... it's probably not declared on the object. To use this method the target object must have a PrimaryKey defined.");
+        }
+        FaultingInterceptor interceptor = new FaultingInterceptor(entityMetadata, batch);
+        E object = clazz.cast(ProxyClass.forEntity(entityMetadata).newInstance(interceptor));
+        interceptor.setObject(object);
+        if (batch != null) {
+            batch.add(interceptor);
+        }
+        return object;
     }
 
     private String getPkField(Class<?> clazz) {
-        String pkField = null;
-        Field[] fields = clazz.getDeclaredFields();
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(PrimaryKey.class)) {
-                pkField = field.getName();
-            }
-        }
-        return pkField;
+        ColumnMetadata pkColumn = EntityMetadata.forClass(clazz).getPrimaryKey();
+        return pkColumn == null ? null : pkColumn.getName();
     }
 
-    private Object getPkValue(String pkField, Object object) throws DataConnectionException {
+    private static Object getPkValue(ColumnMetadata pkColumn, Object object) throws DataConnectionException {
         try {
-            return object.getClass().getMethod("get" + SqliteUtils.capitalize(pkField), (Class<?>[]) null).invoke(object, (Object[]) null);
+            return pkColumn.getValue(object);
         }
         catch (Exception e) {
             throw new DataConnectionException("Could not get pkValue", e);
@@ -717,57 +1495,59 @@ public class SqlExecutor<T> {
     }
 
     private String getFkField(Class<?> clazz) throws DataConnectionException {
+        EntityMetadata objectMetadata = EntityMetadata.forClass(clazz);
+        if (!objectMetadata.hasRelationships()) {
+            throw new DataConnectionException(String.format("No OneToMany reationship could be found on the %s", clazz));
+        }
         String fkField = null;
-        Field[] fields = clazz.getDeclaredFields();
-        boolean annotationFound = false;
-        for (Field field : fields) {
-            Annotation annotation = field.getAnnotation(OneToMany.class);
-            if (annotation != null) {
-                annotationFound = true;
-                Class<?> targetClazz = field.getType();
-                if (targetClazz != List.class) {
-                    throw new DataConnectionException(String.format("The return type of a OneToMany relationship must be a List Type for field %s", field.getName()));
-                }
-                ParameterizedType genericType = (ParameterizedType) field.getGenericType();
-                Type[] types = genericType.getActualTypeArguments();
-                if ((Class<?>) types[0] == this.clazz) {
-                    fkField = ((OneToMany) annotation).value();
-                }
+        for (Relationship relationship : objectMetadata.getRelationships().values()) {
+            if (relationship.getRelatedClassType() == this.clazz) {
+                fkField = relationship.getFk();
             }
         }
-        if (!annotationFound) {
-            throw new DataConnectionException(String.format("No OneToMany reationship could be found on the %s", clazz));
-        }
         return fkField;
     }
 
+    /**
+     * Defines the where of an update or delete without one by the primary key of its object, which for an update
+     * also reads the values of the object's columns. Does nothing if the where has already been defined.
+     * 
+     * @throws DataConnectionException
+     */
+    private void defineWhereByPrimaryKey() throws DataConnectionException {
+        boolean needsAutoDefinedWhereStatement = !whereDefined && (statementType == StatementType.UPDATE || statementType == StatementType.DELETE);
+        if (needsAutoDefinedWhereStatement) {
+            ColumnMetadata pkColumn = metadata.getPrimaryKey();
+            if (pkColumn == null) {
+                throw new DataConnectionException("pkField couldn't be found... it's probably not declared on the object.");
+            }
+            if (sqlObject == null) {
+                throw new DataConnectionException("An instance of the object " + clazz.getSimpleName() + " must be supplied to auto infer the upate/delete");
+            }
+            Object pkValue = getPkValue(pkColumn, this.sqlObject);
+            where(pkColumn.getName());
+            whereExecutor.eq(pkValue);
+        }
+    }
+
     private void executeStatement() throws DataConnectionException {
         try {
-            Connection connection = DataConnectionManager.getConnection();
-            if (connection == null) {
-                throw new DataConnectionException("Connection is not initialized");
-            }
             // Try to define the where based on if there is a pk field defined.
-            boolean needsAutoDefinedWhereStatement = !whereDefined && (statementType == StatementType.UPDATE || statementType == StatementType.DELETE);
-            if (needsAutoDefinedWhereStatement) {
-                String pkField = getPkField(this.clazz);
-                Object pkValue = getPkValue(pkField, this.sqlObject);
-                if (pkField == null) {
-                    throw new DataConnectionException("pkField couldn't be found... it's probably not declared on the object.");
-                }
-                if (sqlObject == null) {
-                    throw new DataConnectionException("An instance of the object " + clazz.getSimpleName() + " must be supplied to auto infer the upate/delete");
-                }
-                where(pkField);
-                whereExecutor.eq(pkValue);
-            }
-            statement = connection.prepareStatement(getQuery(), Statement.RETURN_GENERATED_KEYS);
-            replaceValues();
+            defineWhereByPrimaryKey();
+            String query = getQuery();
+            connection = DataConnectionManager.acquireConnection(statementType);
+            statement = connection.getStatementCache().prepare(query, statementType != StatementType.SELECT);
+            replaceValues(query);
             if (statementType == StatementType.SELECT) {
+                statement.setFetchSize(fetchSize);
                 resultSet = statement.executeQuery();
             }
             else {
                 statement.execute();
+                if (event != null) {
+                    DataConnectionManager.statementFinished(event, statement.getUpdateCount(), null);
+                }
+                DataConnectionManager.tableChanged(metadata.getTableName());
 
                 /*
                  * TODO This needs to be looked at... before going down the road of inserting the related objects,
@@ -775,9 +1555,7 @@ public class SqlExecutor<T> {
                  *      creation time the pk of the object might not be there... so we may want to write a join to
                  *      do this update of the related objects...
                  */
-                if (relationships == null) {
-                    relationships = findRelationships();
-                }
+                Map<String, Relationship> relationships = metadata.getRelationships();
                 boolean relationshipsNeedToBeAdded = relationships.size() > 0
                         && (statementType == StatementType.INSERT || statementType == StatementType.UPDATE);
                 if (relationshipsNeedToBeAdded) {
@@ -805,6 +1583,7 @@ public class SqlExecutor<T> {
             }
         }
         catch (SQLException e) {
+            DataConnectionManager.statementFinished(event, -1, e);
             logger.error(e.getErrorCode());
             if (e.getMessage().contains("PRIMARY KEY must be unique")) {
                 throw new DataConnectionException("A @PrimaryKey needs to be defined on the class '" + this.clazz.getSimpleName() + "' , since there is a primary key in the database.", e);
@@ -812,43 +1591,14 @@ public class SqlExecutor<T> {
             throw new DataConnectionException("Error executing sql statement", e);
         }
         catch (Exception e) {
+            DataConnectionManager.statementFinished(event, -1, e);
             throw new DataConnectionException("Error executing sql statement", e);
         }
     }
 
-    private void processColumn(Object object, String columnName, ResultSet resultSet) throws SQLException, SecurityException, NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, NoSuchFieldException, DataConnectionException {
-        Object value = null;
-        Class<?> type = clazz.getDeclaredField(columnName).getType();
-        if (type == String.class) {
-            value = resultSet.getString(columnName);
-        }
-        else if (type == Float.class || type == Float.TYPE) {
-            value = resultSet.getFloat(columnName);
-        }
-        else if (type == Integer.class || type == Integer.TYPE) {
-            value = resultSet.getInt(columnName);
-        }
-        else if (type == Double.class || type == Double.TYPE) {
-            value = resultSet.getDouble(columnName);
-        }
-        else if (type == Boolean.class || type == Boolean.TYPE) {
-            value = resultSet.getBoolean(columnName);
-        }
-        else if (type == Date.class) {
-            value = DateUtils.getDateFromDatabaseFormattedString(resultSet.getString(columnName));
-        }
-        else if (type == Long.class || type == Long.TYPE) {
-            value = resultSet.getLong(columnName);
-        }
-        String methodName = "set" + SqliteUtils.capitalize(columnName);
-        Method method = clazz.getDeclaredMethod(methodName, type);
-        method.invoke(object, value);
-    }
-
     private void addRelationshipForInsert(Relationship relationship) throws DataConnectionException {
         try {
-            Method method = clazz.getDeclaredMethod(relationship.getterName(), (Class<?>[]) null);
-            List<?> relatedObjects = (List<?>) method.invoke(this.sqlObject, (Object[]) null);
+            List<?> relatedObjects = (List<?>) relationship.getGetter().invoke(this.sqlObject, (Object[]) null);
             if (relatedObjects != null) {
                 for (Object object : relatedObjects) {
                     setupRelationshipForRelatedObject(relationship, object, relationship.getFk());
@@ -861,25 +1611,48 @@ public class SqlExecutor<T> {
     }
 
     public void setupRelationshipForRelatedObject(Relationship relationship, Object object, String foreignKey) throws DataConnectionException {
-        String primaryKey = getPkField(object.getClass());
-        Object objectsPrimaryKey = getPkValue(primaryKey, object);
-        Object thisObjectsPrimaryKey = this.getPkValue(this.getPkField(this.clazz), this.sqlObject);
+        Object thisObjectsPrimaryKey = getPkValue(metadata.getPrimaryKey(), this.sqlObject);
         boolean thisSqlObjectIsNotUpToDate = SqliteUtils.isEmpty(thisObjectsPrimaryKey);
 
-        try {
-            if (thisSqlObjectIsNotUpToDate) {
+        if (thisSqlObjectIsNotUpToDate) {
+            try {
                 ResultSet rs = statement.getGeneratedKeys();
-                rs.next();
-                thisObjectsPrimaryKey = rs.getLong(1);
+                try {
+                    rs.next();
+                    thisObjectsPrimaryKey = rs.getLong(1);
+                }
+                finally {
+                    // An open result set keeps the connection from committing or rolling back a transaction.
+                    rs.close();
+                }
+            }
+            catch (Exception e) {
+                throw new DataConnectionException(String.format("Could not set the foreign key %s on the %s object", foreignKey, object.getClass()), e);
             }
-            Method objectsSetterMethod = object.getClass().getDeclaredMethod(relationship.foreignSetterName(), relationship.getFkClassType());
-            objectsSetterMethod.invoke(object, thisObjectsPrimaryKey);
+        }
+        saveRelatedObject(relationship, object, thisObjectsPrimaryKey);
+    }
+
+    /**
+     * Sets the foreign key of a related object and then updates it if it's already in the database, or inserts it
+     * if it isn't.
+     * 
+     * @param relationship The relationship the object is part of.
+     * @param object The related object.
+     * @param foreignKeyValue The primary key of the object that owns the relationship.
+     * @throws DataConnectionException
+     */
+    static void saveRelatedObject(Relationship relationship, Object object, Object foreignKeyValue) throws DataConnectionException {
+        ColumnMetadata primaryKey = EntityMetadata.forClass(SqliteUtils.getClass(object)).getPrimaryKey();
+        Object objectsPrimaryKey = getPkValue(primaryKey, object);
+        try {
+            relationship.getForeignKeyColumn().setValue(object, foreignKeyValue);
         }
         catch (Exception e) {
-            throw new DataConnectionException(String.format("Could not set the foreign key %s on the %s object", foreignKey, object.getClass()), e);
+            throw new DataConnectionException(String.format("Could not set the foreign key %s on the %s object", relationship.getFk(), object.getClass()), e);
         }
 
-        boolean objectIsInDbAlready = SqlStatement.select(object.getClass()).where(primaryKey).eq(objectsPrimaryKey).getCount() > 0;
+        boolean objectIsInDbAlready = SqlStatement.select(SqliteUtils.getClass(object)).where(primaryKey.getName()).eq(objectsPrimaryKey).getCount() > 0;
         if (objectIsInDbAlready) {
             SqlStatement.update(object).execute();
         }
@@ -888,39 +1661,96 @@ public class SqlExecutor<T> {
         }
     }
 
-    private void reset() throws DataConnectionException {
-        try {
-            if (statement != null) {
-                statement.close();
+    /**
+     * Forgets the statement, result set, connection, and listener event of the last query once a
+     * {@linkplain ResultIterator} has taken them over, so they aren't released until the iterator is closed.
+     */
+    private void handOffStatement() {
+        event = null;
+        resultSet = null;
+        statement = null;
+        connection = null;
+    }
+
+    /**
+     * Hands the statement of the last query back to the {@linkplain StatementCache} it came from, closing its result
+     * set first if it's still open, and then gives back the connection it ran on.
+     */
+    private void releaseStatement() {
+        // A select has finished once its result set is released, an insert/update/delete already has.
+        if (event != null) {
+            DataConnectionManager.statementFinished(event, rowsRead, null);
+            event = null;
+        }
+        rowsRead = 0;
+        if (resultSet != null) {
+            try {
+                resultSet.close();
+            }
+            catch (SQLException e) {
+                logger.warn("Failed to close the result set", e);
             }
+            resultSet = null;
         }
-        catch (Exception e) {
-            throw new DataConnectionException("Failed to close sql statement", e);
+        if (statement != null) {
+            connection.getStatementCache().release(statement);
+            statement = null;
+        }
+        if (connection != null) {
+            DataConnectionManager.releaseConnection(connection);
+            connection = null;
         }
+    }
+
+    private void reset() throws DataConnectionException {
+        releaseStatement();
         queryParts = new LinkedHashMap<StatementParts, String>();
         statement = null;
         resultSet = null;
         values.clear();
         clazz = null;
+        metadata = null;
         statementType = null;
         sqlObject = null;
         whereDefined = false;
+        fetchSize = 0;
+        orderings = new ArrayList<Ordering>();
+        limit = null;
+        offset = null;
+        lastSortKey = null;
+        lastObject = null;
+        includes = new ArrayList<Relationship>();
+        joinedTables = new LinkedHashSet<String>();
     }
 
     private LinkedHashMap<StatementParts, String> queryParts;
     private PreparedStatement statement;
+    private PooledConnection connection;
     private ResultSet resultSet;
+    private StatementEvent event;
+    private int rowsRead;
     private List<Object> values = new ArrayList<Object>();;
     private Class<T> clazz;
+    private EntityMetadata metadata;
     private StatementType statementType;
     private Object sqlObject;
     private boolean whereDefined = false;
+    private int fetchSize = 0;
+    private List<Ordering> orderings = new ArrayList<Ordering>();
+    private Integer limit;
+    private Integer offset;
+    private Object[] lastSortKey;
+    private T lastObject;
+    private List<Relationship> includes = new ArrayList<Relationship>();
+    private Set<String> joinedTables = new LinkedHashSet<String>();
     private boolean firstJoin = true;
     private WhereExecutor<T> whereExecutor = new WhereExecutor<T>(this);
     private JoinExecutor joinExecutor = new JoinExecutor();
-    private Map<String, Relationship> relationships;
 
     private static final String SELECT = "select %s.* ";
+    private static final String LIST_RESULT = "list:";
+    private static final String COUNT_RESULT = "count";
+    private static final String COLUMNS_RESULT = "columns";
     private static final String FROM = "from %s ";
     private static final String SELECT_COUNT = "select count(*) as count ";
     private static final String UPDATE = "update %s ";
@@ -930,10 +1760,33 @@ public class SqlExecutor<T> {
     private static final String AND = "and %s.%s ";
     private static final String OR = "or %s.%s ";
     private static final String ORDER_BY = "order by %s ";
+    private static final String LIMIT = "limit ? ";
+    private static final String OFFSET = "offset ? ";
     private static final String ASC = "asc ";
     private static final String DESC = "desc ";
     private static final String SET = "set %s = ?";
     private static final String SET_AND = ", %s = ? ";
 
+    // SQLite's default SQLITE_MAX_VARIABLE_NUMBER, the most parameters a statement can have.
+    static final int MAX_PARAMETERS = 999;
+
     private static final Logger logger = Logger.getLogger(SqlExecutor.class);
+
+    /**
+     * A field being sorted by, and the direction it's sorted in if one was given.
+     */
+    private static final class Ordering {
+
+        Ordering(String field) {
+            this.field = field;
+        }
+
+        @Override
+        public String toString() {
+            return field;
+        }
+
+        final String field;
+        String direction;
+    }
 }
@@ -1,5 +1,12 @@
 package com.njkremer.Sqlite;
 
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.njkremer.Sqlite.Annotations.AutoIncrement;
 import com.njkremer.Sqlite.Annotations.PrimaryKey;
 
 /**
@@ -24,6 +31,55 @@ public class SqlStatement {
         return new SqlExecutor<T>().select(clazz);
     }
 
+    /**
+     * Looks up an Object by its {@linkplain PrimaryKey}. This is the same as
+     * <code>select(clazz).where(pk).eq(primaryKey).getFirst()</code>, except that the row can come from the primary
+     * key cache if it's turned on with {@linkplain DataConnectionManager#setPrimaryKeyCacheSize(int)}.
+     * 
+     * @param clazz A reference to the Object.class that you are retrieving from the database.
+     * @param primaryKey The value of the {@linkplain PrimaryKey} of the Object.
+     * @return The Object with the primary key, or null if there isn't one.
+     * @throws DataConnectionException
+     */
+    public static <T> T findById(Class<T> clazz, Object primaryKey) throws DataConnectionException {
+        return SqlExecutor.findById(clazz, primaryKey);
+    }
+
+    /**
+     * Opens a stream over the value of a BLOB field of a single row, which reads the value from the database 1 MB at
+     * a time as the stream is read. This is meant for values that are too large to read into the heap as a whole,
+     * when the caller just wants to pipe them to a file or socket. The stream doesn't hold on to a database
+     * connection, so it doesn't need to be closed.
+     * 
+     * @param clazz A reference to the Object.class that maps to the table of the BLOB.
+     * @param field The name of the BLOB field.
+     * @param primaryKey The value of the {@linkplain PrimaryKey} of the row.
+     * @return A stream over the value, or null if there is no such row or the value is null. If the row is deleted, or
+     * the value is replaced with one of a different length, while the stream is being read then the stream throws an
+     * {@linkplain java.io.IOException}.
+     * @throws DataConnectionException
+     * @see #openBlob(Class, String, Object, int)
+     */
+    public static InputStream openBlob(Class<?> clazz, String field, Object primaryKey) throws DataConnectionException {
+        return openBlob(clazz, field, primaryKey, DEFAULT_BLOB_CHUNK_SIZE);
+    }
+
+    /**
+     * Opens a stream over the value of a BLOB field of a single row, which reads the value from the database a chunk
+     * of the passed in size at a time. Every chunk is a separate query, so larger chunks mean fewer queries but more
+     * of the value on the heap at once.
+     * 
+     * @param clazz A reference to the Object.class that maps to the table of the BLOB.
+     * @param field The name of the BLOB field.
+     * @param primaryKey The value of the {@linkplain PrimaryKey} of the row.
+     * @param chunkSize The number of bytes to read with each query.
+     * @return A stream over the value, or null if there is no such row or the value is null.
+     * @throws DataConnectionException
+     */
+    public static InputStream openBlob(Class<?> clazz, String field, Object primaryKey, int chunkSize) throws DataConnectionException {
+        return BlobInputStream.open(clazz, field, primaryKey, chunkSize);
+    }
+
     /**
      * Returns a new instance of {@linkplain SqlExecutor} to be used for updating an Object in the database.
      * 
@@ -38,6 +94,19 @@ public class SqlStatement {
         return new SqlExecutor<T>().update(databaseObject);
     }
 
+    /**
+     * Updates all of the passed in objects by their {@linkplain PrimaryKey} in a single transaction, preparing the
+     * update statement once and running it as JDBC batches of 1000 objects.
+     * 
+     * @param databaseObjects The objects to update, which must all be of the same class and have a
+     * {@linkplain PrimaryKey} defined.
+     * @return The number of rows that were updated.
+     * @throws DataConnectionException If any of the objects couldn't be updated, in which case none of them are.
+     */
+    public static <T> int updateAll(Collection<T> databaseObjects) throws DataConnectionException {
+        return BatchExecutor.updateAll(databaseObjects, DEFAULT_BATCH_SIZE);
+    }
+
     /**
      * Returns a new instance of {@linkplain SqlExecutor} to be used for inserting an Object into the database.
      * 
@@ -53,6 +122,36 @@ public class SqlStatement {
         return new SqlExecutor<T>().insert(databaseObject);
     }
 
+    /**
+     * Inserts all of the passed in objects in a single transaction, preparing the insert statement once and running
+     * it as JDBC batches of 1000 objects. This is much faster than inserting the objects one at a time.
+     *
+     * @param databaseObjects The objects to insert into the database, which must all be of the same class.
+     * @return The keys generated for the objects, in the order they were inserted. These are also set on each
+     * object's {@linkplain AutoIncrement} field. If the class doesn't have an {@linkplain AutoIncrement} field then
+     * the list is empty.
+     * @throws DataConnectionException If any of the objects couldn't be inserted, in which case none of them are.
+     * @see #insertAll(Collection, int)
+     */
+    public static <T> List<Long> insertAll(Collection<T> databaseObjects) throws DataConnectionException {
+        return insertAll(databaseObjects, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Inserts all of the passed in objects in a single transaction, preparing the insert statement once and running
+     * it as JDBC batches of the passed in size.
+     *
+     * @param databaseObjects The objects to insert into the database, which must all be of the same class.
+     * @param chunkSize The number of objects to send to the database in each batch.
+     * @return The keys generated for the objects, in the order they were inserted. These are also set on each
+     * object's {@linkplain AutoIncrement} field. If the class doesn't have an {@linkplain AutoIncrement} field then
+     * the list is empty.
+     * @throws DataConnectionException If any of the objects couldn't be inserted, in which case none of them are.
+     */
+    public static <T> List<Long> insertAll(Collection<T> databaseObjects, int chunkSize) throws DataConnectionException {
+        return BatchExecutor.insertAll(databaseObjects, chunkSize);
+    }
+
     /**
      * Returns a new instance of {@linkplain SqlExecutor} to be used for deleting an record in the database.
      * 
@@ -78,6 +177,55 @@ public class SqlStatement {
         return new SqlExecutor<T>().delete(databaseObject);
     }
     
+    /**
+     * Deletes all of the passed in objects by their {@linkplain PrimaryKey} in a single transaction. Rather than
+     * running a statement per object, the keys are deleted with <code>where pk in (...)</code> statements of up to
+     * 999 keys each, which is the most parameters SQLite allows in a statement.
+     * 
+     * @param databaseObjects The objects to delete, which must all be of the same class and have a
+     * {@linkplain PrimaryKey} defined.
+     * @return The number of rows that were deleted.
+     * @throws DataConnectionException If any of the objects couldn't be deleted, in which case none of them are.
+     */
+    public static <T> int deleteAll(Collection<T> databaseObjects) throws DataConnectionException {
+        return BatchExecutor.deleteAll(databaseObjects);
+    }
+
+    /**
+     * Runs the passed in work in a transaction, so that all of the statements it runs are committed together, or
+     * not at all. The transaction is committed if the work returns normally and is rolled back if it throws. Running
+     * many inserts or updates in one transaction is also much faster than running each in its own.
+     * 
+     * <p>If this is called while already in a transaction then the work is run in a nested transaction (a
+     * savepoint), which only rolls back the changes made by this work if it throws.
+     * 
+     * @param work The work to run in the transaction.
+     * @return The value returned by the work.
+     * @throws DataConnectionException If the work throws a {@linkplain DataConnectionException} or the transaction
+     * couldn't be started or committed.
+     */
+    public static <R> R inTransaction(TransactionWork<R> work) throws DataConnectionException {
+        DataConnectionManager.beginTransaction();
+        R result;
+        boolean succeeded = false;
+        try {
+            result = work.execute();
+            succeeded = true;
+        }
+        finally {
+            if (!succeeded) {
+                try {
+                    DataConnectionManager.rollbackTransaction();
+                }
+                catch (DataConnectionException e) {
+                    logger.error("Could not roll back the transaction", e);
+                }
+            }
+        }
+        DataConnectionManager.commitTransaction();
+        return result;
+    }
+    
     /**
      * @deprecated As of 8/13/2012 the creation of a SqlStatement is deprecated in favor of using the static methods off of the 
      * {@link SqlStatement} class. The methods will continue to work but you will get compiler warnings to access the methods
@@ -88,4 +236,10 @@ public class SqlStatement {
         
     }
 
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final int DEFAULT_BLOB_CHUNK_SIZE = 1024 * 1024;
+
+    private static final Logger logger = Logger.getLogger(SqlStatement.class);
+
 }
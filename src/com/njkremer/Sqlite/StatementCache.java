@@ -0,0 +1,185 @@
+package com.njkremer.Sqlite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A bounded, least recently used cache of the {@linkplain PreparedStatement PreparedStatements} of a single
+ * {@linkplain Connection}, keyed by their SQL and whether they return generated keys. This saves SQLite from having
+ * to parse and plan the same statement every time it's executed.
+ *
+ * <p>A statement is taken out of the cache by {@linkplain #prepare(String, boolean)} and is only put back by
+ * {@linkplain #release(PreparedStatement)} once the caller is done with it (and its result set), so a cached
+ * statement is never used by two callers at once. Parameters are cleared when a statement is put back, and statements
+ * that are evicted, or that aren't needed because an idle one with the same key is already cached, are closed.
+ */
+final class StatementCache {
+
+    /**
+     * @param connection The connection the statements are prepared on.
+     * @param capacity The maximum number of idle statements to keep, 0 turns caching off.
+     */
+    StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets a prepared statement for the passed in SQL, either from the cache or by preparing a new one. The statement
+     * must be given back with {@linkplain #release(PreparedStatement)} when it's no longer being used.
+     *
+     * @param sql The SQL of the statement.
+     * @param generatedKeys Whether the statement needs to return generated keys.
+     * @return A {@linkplain PreparedStatement} for the SQL.
+     * @throws SQLException
+     */
+    PreparedStatement prepare(String sql, boolean generatedKeys) throws SQLException {
+        return prepare((generatedKeys ? GENERATED_KEYS_PREFIX : NO_GENERATED_KEYS_PREFIX).concat(sql), sql, generatedKeys);
+    }
+
+    /**
+     * Gets a prepared statement for the passed in SQL that is going to be run with
+     * {@linkplain PreparedStatement#executeBatch()}, which returns generated keys. Batched statements are cached
+     * separately from the ones {@linkplain #prepare(String, boolean)} hands out, since the driver keeps the parameter
+     * array of a batch around and a statement that has been batched can't be executed on its own anymore.
+     *
+     * @param sql The SQL of the statement.
+     * @return A {@linkplain PreparedStatement} for the SQL.
+     * @throws SQLException
+     */
+    PreparedStatement prepareBatch(String sql) throws SQLException {
+        return prepare(BATCH_PREFIX.concat(sql), sql, true);
+    }
+
+    private PreparedStatement prepare(String key, String sql, boolean generatedKeys) throws SQLException {
+        synchronized (this) {
+            PreparedStatement statement = idle.remove(key);
+            if (statement != null) {
+                hits++;
+                inUse.put(statement, key);
+                return statement;
+            }
+            misses++;
+        }
+        PreparedStatement statement = connection.prepareStatement(sql, generatedKeys ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS);
+        synchronized (this) {
+            inUse.put(statement, key);
+        }
+        return statement;
+    }
+
+    /**
+     * Gives a statement obtained from {@linkplain #prepare(String, boolean)} back to the cache.
+     *
+     * @param statement The statement that is no longer being used.
+     */
+    void release(PreparedStatement statement) {
+        String key;
+        synchronized (this) {
+            key = inUse.remove(statement);
+        }
+        if (key == null) {
+            return;
+        }
+        try {
+            statement.clearParameters();
+        }
+        catch (SQLException e) {
+            close(statement);
+            return;
+        }
+        PreparedStatement evicted = null;
+        synchronized (this) {
+            if (capacity > 0 && !idle.containsKey(key)) {
+                idle.put(key, statement);
+                statement = null;
+                if (idle.size() > capacity) {
+                    Iterator<PreparedStatement> eldest = idle.values().iterator();
+                    evicted = eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        close(statement);
+        close(evicted);
+    }
+
+    /**
+     * Changes the number of idle statements that are kept, closing any that no longer fit.
+     *
+     * @param capacity The maximum number of idle statements to keep, 0 turns caching off.
+     */
+    void setCapacity(int capacity) {
+        synchronized (this) {
+            this.capacity = capacity;
+        }
+        trimTo(capacity);
+    }
+
+    /**
+     * Closes all of the idle statements. Statements that are in use are closed or cached when they're released.
+     */
+    void clear() {
+        trimTo(0);
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return idle.size();
+    }
+
+    private void trimTo(int size) {
+        List<PreparedStatement> evicted = new ArrayList<PreparedStatement>();
+        synchronized (this) {
+            Iterator<PreparedStatement> eldest = idle.values().iterator();
+            while (idle.size() > size) {
+                evicted.add(eldest.next());
+                eldest.remove();
+            }
+        }
+        for (PreparedStatement statement : evicted) {
+            close(statement);
+        }
+    }
+
+    private static void close(PreparedStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            }
+            catch (SQLException e) {
+                logger.warn("Failed to close a cached sql statement", e);
+            }
+        }
+    }
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+    private final Map<PreparedStatement, String> inUse = new IdentityHashMap<PreparedStatement, String>();
+    private int capacity;
+    private long hits;
+    private long misses;
+
+    private static final String GENERATED_KEYS_PREFIX = "K:";
+    private static final String NO_GENERATED_KEYS_PREFIX = "N:";
+    private static final String BATCH_PREFIX = "B:";
+
+    private static final Logger logger = Logger.getLogger(StatementCache.class);
+}
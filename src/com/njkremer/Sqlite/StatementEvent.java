@@ -0,0 +1,136 @@
+package com.njkremer.Sqlite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A statement run by the ORM, as it's passed to a {@linkplain StatementListener}. The SQL with the parameters filled
+ * in is only rendered if {@linkplain #getSql()} is called, so listeners that only look at the timing don't pay for it.
+ *
+ * <p>Statements that are run as JDBC batches, by {@linkplain SqlStatement#insertAll(java.util.Collection)} and
+ * {@linkplain SqlStatement#updateAll(java.util.Collection)}, are reported once per batch without their parameters.
+ */
+public final class StatementEvent {
+
+    StatementEvent(StatementType type, String query, List<Object> parameters) {
+        this.type = type;
+        this.query = query;
+        this.parameters = Collections.unmodifiableList(new ArrayList<Object>(parameters));
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return The type of the statement.
+     */
+    public StatementType getType() {
+        return type;
+    }
+
+    /**
+     * @return The SQL of the statement, with a <code>?</code> for each parameter.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The values bound to the parameters of the statement, in order.
+     */
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return The SQL of the statement with the parameters filled in, which is meant for logging and may not be valid
+     * SQL since the values aren't quoted.
+     */
+    public synchronized String getSql() {
+        if (sql == null) {
+            sql = render(query, parameters);
+        }
+        return sql;
+    }
+
+    /**
+     * @return For a select, the number of rows that were read. For anything else, the number of rows that were
+     * changed. -1 before the statement has finished.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return How long the statement took in nanoseconds, or -1 before it has finished.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The exception the statement failed with, or null if it didn't fail.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return true once the statement has finished, successfully or not.
+     */
+    public boolean isFinished() {
+        return elapsedNanos >= 0;
+    }
+
+    /**
+     * Records the result of the statement. Does nothing if it was already recorded.
+     *
+     * @param rowCount The number of rows that were read or changed.
+     * @param error The exception the statement failed with, or null.
+     * @return false if the result was already recorded.
+     */
+    boolean finish(int rowCount, Throwable error) {
+        if (isFinished()) {
+            return false;
+        }
+        this.rowCount = rowCount;
+        this.error = error;
+        this.elapsedNanos = System.nanoTime() - startNanos;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return getSql();
+    }
+
+    /**
+     * Fills in each <code>?</code> of a query with the next parameter.
+     *
+     * @param query The query.
+     * @param parameters The parameters of the query.
+     * @return The query with the parameters filled in.
+     */
+    static String render(String query, List<Object> parameters) {
+        StringBuilder sql = new StringBuilder(query.length() + parameters.size() * 8);
+        int parameter = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '?' && parameter < parameters.size()) {
+                sql.append(parameters.get(parameter++));
+            }
+            else {
+                sql.append(c);
+            }
+        }
+        return sql.toString();
+    }
+
+    private final StatementType type;
+    private final String query;
+    private final List<Object> parameters;
+    private final long startNanos;
+    private String sql;
+    private volatile int rowCount = -1;
+    private volatile long elapsedNanos = -1;
+    private volatile Throwable error;
+}
@@ -0,0 +1,30 @@
+package com.njkremer.Sqlite;
+
+/**
+ * Is told about every select, insert, update, and delete the ORM runs, including the batches of
+ * {@linkplain SqlStatement#insertAll(java.util.Collection)} and friends, for instance to log slow statements or to record
+ * metrics. Listeners are registered with {@linkplain DataConnectionManager#addStatementListener(StatementListener)}. See
+ * {@linkplain SlowQueryLog} for a listener that logs the statements that take longer than a threshold. The chunks read
+ * by {@linkplain SqlStatement#openBlob(Class, String, Object)} aren't reported.
+ *
+ * <p>Listeners are called on the thread that runs the statement, while it holds on to its connection, so they should
+ * be quick and must be thread safe. An exception thrown by a listener is logged and otherwise ignored.
+ */
+public interface StatementListener {
+
+    /**
+     * Called right before a statement is executed, once its parameters have been bound. A statement that can't be
+     * prepared, for instance because its table doesn't exist, is never executed, so the listeners aren't told about it.
+     *
+     * @param event The statement, which doesn't have a result yet.
+     */
+    void beforeExecute(StatementEvent event);
+
+    /**
+     * Called once a statement has finished. For a select that's when its results have been read, or when reading them
+     * stopped, so the elapsed time includes reading the rows.
+     *
+     * @param event The statement and its result.
+     */
+    void afterExecute(StatementEvent event);
+}
@@ -0,0 +1,17 @@
+package com.njkremer.Sqlite;
+
+/**
+ * The work to run in a transaction with {@linkplain SqlStatement#inTransaction(TransactionWork)}.
+ * 
+ * @param <R> The type of the value returned by the work, use {@linkplain Void} if there isn't one.
+ */
+public interface TransactionWork<R> {
+
+    /**
+     * Runs the work. Every statement run by this method is part of the transaction.
+     * 
+     * @return A value that is passed back to the caller of {@linkplain SqlStatement#inTransaction(TransactionWork)}.
+     * @throws DataConnectionException If this is thrown the transaction is rolled back.
+     */
+    R execute() throws DataConnectionException;
+}
@@ -0,0 +1,39 @@
+package com.njkremer.Sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Converts the values of a Java type to and from how they're stored in the database. Converters for types the ORM
+ * doesn't support out of the box are registered with {@linkplain TypeConverters#register(Class, TypeConverter)}.
+ *
+ * <p>A converter is looked up once per column when the {@linkplain EntityMetadata metadata} of a class is built, so
+ * reading and writing the column doesn't check the type of every value. Converters are shared by every thread, so
+ * they must be thread safe.
+ *
+ * @param <T> The Java type that's converted.
+ */
+public interface TypeConverter<T> {
+
+    /**
+     * Binds a value to a parameter of a statement.
+     *
+     * @param statement The statement to bind the value to.
+     * @param index The index of the parameter, starting at 1.
+     * @param value The value to bind, which is never null.
+     * @throws SQLException
+     */
+    void bind(PreparedStatement statement, int index, T value) throws SQLException;
+
+    /**
+     * Reads a value from a column of the current row of a result set.
+     *
+     * @param resultSet The result set, positioned on the row to read.
+     * @param index The index of the column, starting at 1.
+     * @return The value of the column, or null if it's NULL.
+     * @throws SQLException
+     * @throws DataConnectionException If the column can't be converted.
+     */
+    T read(ResultSet resultSet, int index) throws SQLException, DataConnectionException;
+}
@@ -0,0 +1,354 @@
+package com.njkremer.Sqlite;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.njkremer.Sqlite.utils.DateUtils;
+
+/**
+ * The registry of the {@linkplain TypeConverter TypeConverters} that read and write the fields of the POJOs.
+ *
+ * <p>Out of the box the registry converts the primitives and their wrappers, {@linkplain String},
+ * {@linkplain Date} (see {@linkplain DataConnectionManager#setDateStorage(DateStorage)}), BLOBs as <code>byte[]</code>,
+ * {@linkplain ByteBuffer} or {@linkplain InputStream}, {@linkplain BigDecimal} and {@linkplain UUID} (both stored as text, so no precision is lost) and enums, which are
+ * stored by {@linkplain Enum#name() name} unless a converter from {@linkplain #enumByOrdinal(Class)} is registered for
+ * them. Any other type needs a converter registered for it before the first query of a class that uses it, since the
+ * converters of a class's columns are looked up once.
+ */
+public final class TypeConverters {
+
+    /**
+     * Registers a converter for a type, replacing the built in one if there is one.
+     *
+     * @param type The Java type.
+     * @param converter The converter of the type.
+     */
+    public static <T> void register(Class<T> type, TypeConverter<T> converter) {
+        if (type == null || converter == null) {
+            throw new IllegalArgumentException("The type and converter can't be null");
+        }
+        REGISTERED.put(type, converter);
+    }
+
+    /**
+     * @param type An enum type.
+     * @return A converter that stores the enum by its {@linkplain Enum#name() name}, which is what's used by default.
+     */
+    public static <E extends Enum<E>> TypeConverter<E> enumByName(final Class<E> type) {
+        return new TypeConverter<E>() {
+            public void bind(PreparedStatement statement, int index, E value) throws SQLException {
+                statement.setString(index, value.name());
+            }
+
+            public E read(ResultSet resultSet, int index) throws SQLException, DataConnectionException {
+                String name = resultSet.getString(index);
+                if (name == null) {
+                    return null;
+                }
+                try {
+                    return Enum.valueOf(type, name);
+                }
+                catch (IllegalArgumentException e) {
+                    throw new DataConnectionException(String.format("%s isn't a constant of %s", name, type.getName()), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param type An enum type.
+     * @return A converter that stores the enum by its {@linkplain Enum#ordinal() ordinal}, which takes less space but
+     * breaks if the constants are reordered.
+     */
+    public static <E extends Enum<E>> TypeConverter<E> enumByOrdinal(final Class<E> type) {
+        final E[] constants = type.getEnumConstants();
+        return new TypeConverter<E>() {
+            public void bind(PreparedStatement statement, int index, E value) throws SQLException {
+                statement.setInt(index, value.ordinal());
+            }
+
+            public E read(ResultSet resultSet, int index) throws SQLException, DataConnectionException {
+                int ordinal = resultSet.getInt(index);
+                if (resultSet.wasNull()) {
+                    return null;
+                }
+                if (ordinal < 0 || ordinal >= constants.length) {
+                    throw new DataConnectionException(String.format("%d isn't an ordinal of %s", ordinal, type.getName()));
+                }
+                return constants[ordinal];
+            }
+        };
+    }
+
+    /**
+     * @param type A Java type.
+     * @return The converter of the type, or null if there isn't one.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static TypeConverter<?> forType(Class<?> type) {
+        TypeConverter<?> converter = REGISTERED.get(type);
+        if (converter == null) {
+            converter = BUILT_IN.get(type);
+        }
+        if (converter == null && type.isEnum()) {
+            converter = enumByName((Class) type);
+            TypeConverter<?> existing = BUILT_IN.putIfAbsent(type, converter);
+            if (existing != null) {
+                converter = existing;
+            }
+        }
+        return converter;
+    }
+
+    /**
+     * Binds a value whose column isn't known, such as the value of a where clause, with the converter of its class.
+     *
+     * @param statement The statement to bind the value to.
+     * @param index The index of the parameter, starting at 1.
+     * @param value The value to bind, which may be null.
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+    static void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+            return;
+        }
+        Class<?> type = value instanceof Enum ? ((Enum<?>) value).getDeclaringClass() : value.getClass();
+        TypeConverter<Object> converter = (TypeConverter<Object>) forType(type);
+        // Values like a HeapByteBuffer or FileInputStream are bound with the converter of the type they extend.
+        for (Class<?> superclass = type.getSuperclass(); converter == null && superclass != null; superclass = superclass.getSuperclass()) {
+            converter = (TypeConverter<Object>) forType(superclass);
+        }
+        if (converter == null) {
+            throw new RuntimeException(value.getClass() + " " + value.toString() + " is not a supported object");
+        }
+        converter.bind(statement, index, value);
+    }
+
+    private TypeConverters() {
+    }
+
+    private static final ConcurrentMap<Class<?>, TypeConverter<?>> REGISTERED = new ConcurrentHashMap<Class<?>, TypeConverter<?>>();
+    private static final ConcurrentMap<Class<?>, TypeConverter<?>> BUILT_IN = new ConcurrentHashMap<Class<?>, TypeConverter<?>>();
+
+    private static <T> void addBuiltIn(Class<T> type, TypeConverter<T> converter) {
+        BUILT_IN.put(type, converter);
+    }
+
+    // The readers of the types that were supported before converters keep reading NULL as the driver does, e.g. 0
+    // for an Integer, so that existing objects read the same way.
+    static {
+        addBuiltIn(String.class, new TypeConverter<String>() {
+            public void bind(PreparedStatement statement, int index, String value) throws SQLException {
+                statement.setString(index, value);
+            }
+
+            public String read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getString(index);
+            }
+        });
+        TypeConverter<Integer> integerConverter = new TypeConverter<Integer>() {
+            public void bind(PreparedStatement statement, int index, Integer value) throws SQLException {
+                statement.setInt(index, value);
+            }
+
+            public Integer read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getInt(index);
+            }
+        };
+        addBuiltIn(Integer.class, integerConverter);
+        addBuiltIn(Integer.TYPE, integerConverter);
+        TypeConverter<Long> longConverter = new TypeConverter<Long>() {
+            public void bind(PreparedStatement statement, int index, Long value) throws SQLException {
+                statement.setLong(index, value);
+            }
+
+            public Long read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getLong(index);
+            }
+        };
+        addBuiltIn(Long.class, longConverter);
+        addBuiltIn(Long.TYPE, longConverter);
+        TypeConverter<Double> doubleConverter = new TypeConverter<Double>() {
+            public void bind(PreparedStatement statement, int index, Double value) throws SQLException {
+                statement.setDouble(index, value);
+            }
+
+            public Double read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getDouble(index);
+            }
+        };
+        addBuiltIn(Double.class, doubleConverter);
+        addBuiltIn(Double.TYPE, doubleConverter);
+        TypeConverter<Float> floatConverter = new TypeConverter<Float>() {
+            public void bind(PreparedStatement statement, int index, Float value) throws SQLException {
+                statement.setFloat(index, value);
+            }
+
+            public Float read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getFloat(index);
+            }
+        };
+        addBuiltIn(Float.class, floatConverter);
+        addBuiltIn(Float.TYPE, floatConverter);
+        TypeConverter<Boolean> booleanConverter = new TypeConverter<Boolean>() {
+            public void bind(PreparedStatement statement, int index, Boolean value) throws SQLException {
+                statement.setBoolean(index, value);
+            }
+
+            public Boolean read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getBoolean(index);
+            }
+        };
+        addBuiltIn(Boolean.class, booleanConverter);
+        addBuiltIn(Boolean.TYPE, booleanConverter);
+        TypeConverter<Short> shortConverter = new TypeConverter<Short>() {
+            public void bind(PreparedStatement statement, int index, Short value) throws SQLException {
+                statement.setShort(index, value);
+            }
+
+            public Short read(ResultSet resultSet, int index) throws SQLException {
+                short value = resultSet.getShort(index);
+                return resultSet.wasNull() ? null : Short.valueOf(value);
+            }
+        };
+        addBuiltIn(Short.class, shortConverter);
+        addBuiltIn(Short.TYPE, shortConverter);
+        TypeConverter<Byte> byteConverter = new TypeConverter<Byte>() {
+            public void bind(PreparedStatement statement, int index, Byte value) throws SQLException {
+                statement.setByte(index, value);
+            }
+
+            public Byte read(ResultSet resultSet, int index) throws SQLException {
+                byte value = resultSet.getByte(index);
+                return resultSet.wasNull() ? null : Byte.valueOf(value);
+            }
+        };
+        addBuiltIn(Byte.class, byteConverter);
+        addBuiltIn(Byte.TYPE, byteConverter);
+        addBuiltIn(Date.class, new TypeConverter<Date>() {
+            public void bind(PreparedStatement statement, int index, Date value) throws SQLException {
+                if (DataConnectionManager.getDateStorage() == DateStorage.EPOCH_MILLIS) {
+                    statement.setLong(index, value.getTime());
+                }
+                else {
+                    statement.setString(index, DateUtils.getDatabaseFormattedStringFromDate(value));
+                }
+            }
+
+            public Date read(ResultSet resultSet, int index) throws SQLException, DataConnectionException {
+                if (DataConnectionManager.getDateStorage() == DateStorage.EPOCH_MILLIS) {
+                    long millis = resultSet.getLong(index);
+                    return resultSet.wasNull() ? null : new Date(millis);
+                }
+                return DateUtils.getDateFromDatabaseFormattedString(resultSet.getString(index));
+            }
+        });
+        addBuiltIn(byte[].class, new TypeConverter<byte[]>() {
+            public void bind(PreparedStatement statement, int index, byte[] value) throws SQLException {
+                statement.setBytes(index, value);
+            }
+
+            public byte[] read(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getBytes(index);
+            }
+        });
+        // The driver only binds and reads whole byte arrays, so these wrap the array rather than copying it again.
+        addBuiltIn(ByteBuffer.class, new TypeConverter<ByteBuffer>() {
+            public void bind(PreparedStatement statement, int index, ByteBuffer value) throws SQLException {
+                if (value.hasArray() && value.arrayOffset() == 0 && value.position() == 0 && value.remaining() == value.array().length) {
+                    statement.setBytes(index, value.array());
+                }
+                else {
+                    byte[] bytes = new byte[value.remaining()];
+                    value.duplicate().get(bytes);
+                    statement.setBytes(index, bytes);
+                }
+            }
+
+            public ByteBuffer read(ResultSet resultSet, int index) throws SQLException {
+                byte[] bytes = resultSet.getBytes(index);
+                return bytes == null ? null : ByteBuffer.wrap(bytes);
+            }
+        });
+        addBuiltIn(InputStream.class, new TypeConverter<InputStream>() {
+            public void bind(PreparedStatement statement, int index, InputStream value) throws SQLException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                try {
+                    // A stream that can be reset, like the ones read from the database, can be saved more than once.
+                    boolean resettable = value.markSupported();
+                    if (resettable) {
+                        value.mark(Integer.MAX_VALUE);
+                    }
+                    int read;
+                    while ((read = value.read(buffer)) != -1) {
+                        bytes.write(buffer, 0, read);
+                    }
+                    if (resettable) {
+                        value.reset();
+                    }
+                }
+                catch (IOException e) {
+                    throw new SQLException("Could not read the stream to bind", e);
+                }
+                statement.setBytes(index, bytes.toByteArray());
+            }
+
+            public InputStream read(ResultSet resultSet, int index) throws SQLException {
+                byte[] bytes = resultSet.getBytes(index);
+                return bytes == null ? null : new ByteArrayInputStream(bytes);
+            }
+        });
+        addBuiltIn(BigDecimal.class, new TypeConverter<BigDecimal>() {
+            public void bind(PreparedStatement statement, int index, BigDecimal value) throws SQLException {
+                statement.setString(index, value.toPlainString());
+            }
+
+            public BigDecimal read(ResultSet resultSet, int index) throws SQLException, DataConnectionException {
+                String value = resultSet.getString(index);
+                if (value == null) {
+                    return null;
+                }
+                try {
+                    return new BigDecimal(value);
+                }
+                catch (NumberFormatException e) {
+                    throw new DataConnectionException(String.format("Could not read a BigDecimal from '%s'", value), e);
+                }
+            }
+        });
+        addBuiltIn(UUID.class, new TypeConverter<UUID>() {
+            public void bind(PreparedStatement statement, int index, UUID value) throws SQLException {
+                statement.setString(index, value.toString());
+            }
+
+            public UUID read(ResultSet resultSet, int index) throws SQLException, DataConnectionException {
+                String value = resultSet.getString(index);
+                if (value == null) {
+                    return null;
+                }
+                try {
+                    return UUID.fromString(value);
+                }
+                catch (IllegalArgumentException e) {
+                    throw new DataConnectionException(String.format("Could not read a UUID from '%s'", value), e);
+                }
+            }
+        });
+    }
+
+}
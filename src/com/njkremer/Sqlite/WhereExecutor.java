@@ -1,6 +1,6 @@
 package com.njkremer.Sqlite;
 
-
+import java.util.Collection;
 
 /**
  * Used to specify an equality in a where statement. This is used in conjunction with
@@ -78,6 +78,26 @@ public class WhereExecutor<T> {
         return _appendToWhere(LIKE, value);
     }   
     
+    /**
+     * Used to specify that the preceding field as specified with a {@linkplain SqlExecutor#where(String) where} or
+     * {@linkplain SqlExecutor#and(String) and} is one of the supplied values.
+     * 
+     * <p>SQLite allows at most 999 parameters in a statement, so there can't be more values than that.
+     * 
+     * @param values The values for the right hand side of the in statement.
+     * @return A {@linkplain SqlExecutor} used for function chaining.
+     */
+    public SqlExecutor<T> in(Collection<?> values) {
+        StringBuilder in = new StringBuilder(IN);
+        for (int i = 0; i < values.size(); i++) {
+            in.append(i == 0 ? "?" : ", ?");
+        }
+        in.append(") ");
+        sqlExecutor.getQueryParts().put(StatementParts.WHERE, sqlExecutor.getQueryParts().get(StatementParts.WHERE).concat(in.toString()));
+        sqlExecutor.getValues().addAll(values);
+        return sqlExecutor;
+    }
+
     private SqlExecutor<T> _appendToWhere(String appendString, Object value) {
         sqlExecutor.getQueryParts().put(StatementParts.WHERE, sqlExecutor.getQueryParts().get(StatementParts.WHERE).concat(appendString));
         sqlExecutor.getValues().add(value);
@@ -95,5 +115,6 @@ public class WhereExecutor<T> {
     private static final String GREATER_THAN_EQUAL = ">= ? ";
     private static final String LESS_THAN_EQUAL = "<= ? ";
     private static final String LIKE = "like ? ";
+    private static final String IN = "in (";
 
 }
\ No newline at end of file
@@ -0,0 +1,321 @@
+package com.njkremer.Sqlite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A bounded queue of inserts and updates that a single writer thread runs in batches, each batch in one transaction,
+ * so that many writes share the cost of a commit. See
+ * {@linkplain DataConnectionManager#enableWriteBehind(int, long, int)}.
+ *
+ * <p>The writer takes the first write off of the queue and then keeps taking writes until it has the maximum number
+ * of them or the maximum delay since the first one has passed. Every write runs in its own savepoint, so a write that
+ * fails is rolled back on its own and only its future fails. None of the futures of a batch complete until the batch
+ * has been committed or rolled back, and {@linkplain #flush()} queues a barrier that completes once every write ahead of
+ * it has.
+ */
+final class WriteBehindQueue {
+
+    /**
+     * Starts the writer thread of a new queue.
+     *
+     * @param maxBatchSize The most writes to commit together.
+     * @param maxDelayMillis The longest to wait for more writes after the first write of a batch.
+     * @param capacity The most writes that can be waiting, after which adding a write blocks until there's room.
+     */
+    WriteBehindQueue(int maxBatchSize, long maxDelayMillis, int capacity) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.queue = new ArrayBlockingQueue<PendingWrite>(capacity);
+        this.writer = new Thread(new Runnable() {
+            public void run() {
+                runWriter();
+            }
+        }, "sqlite-orm-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Adds a write to the queue, waiting for room if it's full.
+     *
+     * @param executor The insert or update to run, which can't be used by the caller afterwards.
+     * @return A future that completes once the write has been committed.
+     * @throws DataConnectionException If the queue has been closed or the thread is interrupted while waiting.
+     */
+    Future<Void> add(SqlExecutor<?> executor) throws DataConnectionException {
+        PendingWrite write = new PendingWrite(executor);
+        if (!put(write)) {
+            throw new DataConnectionException("The write behind queue has been closed");
+        }
+        return write;
+    }
+
+    /**
+     * Waits until every write that was added before this was called has been committed or has failed. This queues a
+     * barrier behind those writes, which ends the batch it's in and is completed once that batch has been committed
+     * or rolled back.
+     *
+     * @throws DataConnectionException If the thread is interrupted while waiting.
+     */
+    void flush() throws DataConnectionException {
+        PendingWrite barrier = new PendingWrite(null);
+        if (!put(barrier)) {
+            // Closing already waits for every queued write.
+            join();
+            return;
+        }
+        try {
+            barrier.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataConnectionException("Interrupted while flushing the write behind queue", e);
+        }
+    }
+
+    /**
+     * Stops taking writes and waits for the writer thread to write the ones that are already queued and stop.
+     *
+     * @throws DataConnectionException If the thread is interrupted while waiting.
+     */
+    void close() throws DataConnectionException {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        }
+        finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            // Wakes the writer up if it's waiting on an empty queue, so it doesn't wait out its poll.
+            queue.put(new PendingWrite(null));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataConnectionException("Interrupted while closing the write behind queue", e);
+        }
+        join();
+    }
+
+    /**
+     * Puts a write on the queue unless the queue has been closed. Closing waits for the puts that are already under
+     * way, so nothing is put on the queue once the writer could have stopped.
+     *
+     * @return false if the queue has been closed.
+     */
+    private boolean put(PendingWrite write) throws DataConnectionException {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            queue.put(write);
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.fail(e);
+            throw new DataConnectionException("Interrupted while waiting for room in the write behind queue", e);
+        }
+        finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void join() throws DataConnectionException {
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataConnectionException("Interrupted while waiting for the write behind queue to close", e);
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<PendingWrite>(maxBatchSize + 1);
+        while (true) {
+            try {
+                PendingWrite first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (isClosed() && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                // A barrier ends the batch, so that whoever is waiting on it doesn't wait out the delay.
+                while (!batch.get(batch.size() - 1).isBarrier() && batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            }
+            catch (InterruptedException e) {
+                // Nothing interrupts the writer on purpose, the batch so far is still written.
+            }
+            commit(batch);
+            batch.clear();
+            if (isClosed() && queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs a batch of writes in one transaction. None of the futures of the batch are completed until the transaction
+     * has been committed or rolled back, so that a flush that's waiting on one of them can't return while the batch
+     * is still being written.
+     */
+    private void commit(List<PendingWrite> batch) {
+        if (batch.size() == 1 && batch.get(0).isBarrier()) {
+            batch.get(0).complete();
+            return;
+        }
+        DataConnectionException batchError = null;
+        boolean committed = false;
+        try {
+            DataConnectionManager.beginTransaction();
+            for (PendingWrite write : batch) {
+                if (write.isBarrier()) {
+                    continue;
+                }
+                DataConnectionManager.beginTransaction();
+                try {
+                    write.executor.executeNow();
+                }
+                catch (Exception e) {
+                    logger.error("A write behind insert or update failed", e);
+                    rollback();
+                    write.error = e;
+                    continue;
+                }
+                DataConnectionManager.commitTransaction();
+            }
+            DataConnectionManager.commitTransaction();
+            committed = true;
+        }
+        catch (DataConnectionException e) {
+            logger.error("Could not commit a batch of " + batch.size() + " writes", e);
+            batchError = e;
+        }
+        finally {
+            if (!committed && DataConnectionManager.isInTransaction()) {
+                rollback();
+            }
+        }
+        for (PendingWrite write : batch) {
+            if (write.isBarrier()) {
+                write.complete();
+            }
+            else if (write.error != null) {
+                write.fail(write.error);
+            }
+            else if (!committed) {
+                write.fail(batchError);
+            }
+            else {
+                write.complete();
+            }
+        }
+    }
+
+    private static void rollback() {
+        try {
+            DataConnectionManager.rollbackTransaction();
+        }
+        catch (DataConnectionException e) {
+            logger.error("Could not roll back the write", e);
+        }
+    }
+
+    private boolean isClosed() {
+        closeLock.readLock().lock();
+        try {
+            return closed;
+        }
+        finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A queued write, whose future is completed by the writer thread rather than by running it as a task. A write
+     * without an executor is a barrier queued by {@linkplain WriteBehindQueue#flush()}.
+     */
+    private static final class PendingWrite extends FutureTask<Void> {
+
+        PendingWrite(SqlExecutor<?> executor) {
+            super(NOTHING, null);
+            this.executor = executor;
+        }
+
+        /**
+         * A write can't be cancelled once it's queued, since the writes after it may depend on it.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        boolean isBarrier() {
+            return executor == null;
+        }
+
+        void complete() {
+            set(null);
+        }
+
+        void fail(Throwable cause) {
+            setException(cause);
+        }
+
+        void await() throws InterruptedException {
+            try {
+                get();
+            }
+            catch (ExecutionException e) {
+                // The write failed, which has already been logged.
+            }
+        }
+
+        private final SqlExecutor<?> executor;
+        /** Why the write failed, which is only set and read by the writer thread. */
+        private Exception error;
+    }
+
+    private static final Runnable NOTHING = new Runnable() {
+        public void run() {
+        }
+    };
+
+    /** How often an idle writer checks whether the queue has been closed. */
+    private static final long POLL_MILLIS = 100;
+
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writer;
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private static final Logger logger = Logger.getLogger(WriteBehindQueue.class);
+}
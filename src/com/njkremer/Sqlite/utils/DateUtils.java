@@ -2,15 +2,28 @@ package com.njkremer.Sqlite.utils;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
 
 import com.njkremer.Sqlite.DataConnectionException;
 
+/**
+ * Converts {@linkplain Date Dates} to and from the <code>yyyy-MM-dd'T'HH:mm:ss</code> text they're stored as by
+ * default. {@linkplain SimpleDateFormat} isn't thread safe, so every thread gets its own, and strings in exactly the
+ * stored format are parsed by hand rather than through it.
+ */
 public class DateUtils {
     
     public static Date getDateFromDatabaseFormattedString(String iso8601DateString) throws DataConnectionException {
+        if (iso8601DateString == null) {
+            return null;
+        }
+        Date date = parseDatabaseFormat(iso8601DateString);
+        if (date != null) {
+            return date;
+        }
         try {
-            return DATE_FORMAT.parse(iso8601DateString);
+            return DATE_FORMAT.get().parse(iso8601DateString);
         }
         catch (ParseException e) {
             throw new DataConnectionException(String.format("Error could not parse a date from the supplied string '%s' make sure it's in the form 'yyyy-MM-dd HH:mm:ss'", iso8601DateString));
@@ -18,8 +31,58 @@ public class DateUtils {
     }
     
     public static String getDatabaseFormattedStringFromDate(Date date) {
-        return DATE_FORMAT.format(date);
+        return DATE_FORMAT.get().format(date);
+    }
+
+    /**
+     * @return The date, or null if the string isn't exactly in the yyyy-MM-dd'T'HH:mm:ss format.
+     */
+    private static Date parseDatabaseFormat(String string) {
+        if (string.length() != 19 || string.charAt(4) != '-' || string.charAt(7) != '-' || string.charAt(10) != 'T' || string.charAt(13) != ':' || string.charAt(16) != ':') {
+            return null;
+        }
+        int year = parseDigits(string, 0, 4);
+        int month = parseDigits(string, 5, 7);
+        int day = parseDigits(string, 8, 10);
+        int hour = parseDigits(string, 11, 13);
+        int minute = parseDigits(string, 14, 16);
+        int second = parseDigits(string, 17, 19);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+            return null;
+        }
+        // Lenient like the SimpleDateFormat, so out of range fields roll over the same way.
+        Calendar calendar = CALENDAR.get();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTime();
     }
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+    /**
+     * @return The number, or -1 if there's a character that isn't a digit.
+     */
+    private static int parseDigits(String string, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        }
+    };
+
+    private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
 }
@@ -1,10 +1,10 @@
 package com.njkremer.Sqlite.utils;
 
-import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ClassUtils;
 
 public class SqliteUtils {
     public static Class<?> getClass(Object object) {
-        return AopUtils.getTargetClass(object);
+        return ClassUtils.getUserClass(object);
     }
     
     public static String capitalize(String word) {
@@ -0,0 +1,135 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.Attachment;
+
+public class TU_BlobInputStream {
+
+    @Before
+    public void setUp() throws Exception {
+        database = File.createTempFile("blob", ".db");
+        DataConnectionManager.close();
+        DataConnectionManager.init(database.getName(), database.getParent());
+        DataConnectionManager.getConnection().createStatement().execute("create table attachment (id INTEGER PRIMARY KEY, name TEXT, contents BLOB, thumbnail BLOB, original BLOB)");
+    }
+
+    @After
+    public void tearDown() {
+        DataConnectionManager.close();
+        DataConnectionManager.init("test/test.db");
+        for (String suffix : Arrays.asList("", "-wal", "-shm", "-journal")) {
+            new File(database.getPath() + suffix).delete();
+        }
+    }
+
+    @Test
+    public void testMappingBlobs() throws Exception {
+        byte[] thumbnail = new byte[] { 9, 1, 2, 3, 9 };
+        Attachment attachment = new Attachment();
+        attachment.setName("report.pdf");
+        attachment.setContents(new byte[] { 1, 2, 3 });
+        attachment.setThumbnail(ByteBuffer.wrap(thumbnail, 1, 3));
+        attachment.setOriginal(new ByteArrayInputStream(new byte[] { 4, 5, 6 }));
+        SqlStatement.insert(attachment).execute();
+
+        Attachment read = SqlStatement.select(Attachment.class).getFirst();
+        assertArrayEquals(new byte[] { 1, 2, 3 }, read.getContents());
+        assertEquals("Only the remaining bytes of a buffer should be written", ByteBuffer.wrap(new byte[] { 1, 2, 3 }), read.getThumbnail());
+        assertArrayEquals(new byte[] { 4, 5, 6 }, readFully(read.getOriginal(), 2));
+
+        read = SqlStatement.select(Attachment.class).getFirst();
+        read.setName("renamed.pdf");
+        SqlStatement.update(read).execute();
+        assertArrayEquals(new byte[] { 4, 5, 6 }, readFully(read.getOriginal(), 2));
+        assertArrayEquals("A stream read from the database should be saved again", new byte[] { 4, 5, 6 }, readFully(SqlStatement.select(Attachment.class).getFirst().getOriginal(), 2));
+
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) SqlStatement.select(Attachment.class).getColumns(new ColumnExpression().column("contents")).get(0).get("contents"));
+    }
+
+    @Test
+    public void testStreamingABlob() throws Exception {
+        byte[] contents = new byte[100000];
+        new Random(42).nextBytes(contents);
+        long id = insert(contents);
+
+        InputStream stream = SqlStatement.openBlob(Attachment.class, "contents", id, 4096);
+        assertArrayEquals(contents, readFully(stream, 1000));
+        assertEquals(-1, stream.read());
+
+        stream = SqlStatement.openBlob(Attachment.class, "contents", id, 4096);
+        assertEquals(contents[0] & 0xff, stream.read());
+        assertEquals(10000, stream.skip(10000));
+        assertEquals(contents[10001] & 0xff, stream.read());
+        assertEquals(contents.length - 10002, stream.skip(Long.MAX_VALUE));
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void testOpeningAMissingBlob() throws Exception {
+        long id = insert(null);
+        assertNull(SqlStatement.openBlob(Attachment.class, "contents", id));
+        assertNull(SqlStatement.openBlob(Attachment.class, "contents", id + 1));
+        try {
+            SqlStatement.openBlob(Attachment.class, "missing", id);
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException e) {
+            assertEquals("There is no field missing on Attachment", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testChangingABlobWhileItsRead() throws Exception {
+        long id = insert(new byte[10]);
+        InputStream stream = SqlStatement.openBlob(Attachment.class, "contents", id, 4);
+        assertEquals(4, stream.read(new byte[4]));
+
+        Attachment attachment = SqlStatement.findById(Attachment.class, id);
+        attachment.setContents(new byte[20]);
+        SqlStatement.update(attachment).execute();
+        try {
+            stream.read(new byte[4]);
+            fail("An exception should have been thrown");
+        }
+        catch (IOException e) {
+            assertEquals("The BLOB was changed or deleted while it was being read", e.getMessage());
+        }
+    }
+
+    private long insert(byte[] contents) throws DataConnectionException {
+        Attachment attachment = new Attachment();
+        attachment.setName("attachment");
+        attachment.setContents(contents);
+        return SqlStatement.insertAll(Collections.singletonList(attachment)).get(0);
+    }
+
+    private byte[] readFully(InputStream stream, int bufferSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private File database;
+}
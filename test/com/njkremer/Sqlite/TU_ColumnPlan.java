@@ -0,0 +1,108 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.Thing;
+import com.njkremer.Sqlite.TestClass.User;
+
+public class TU_ColumnPlan {
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        statement = connection.createStatement();
+        statement.execute("create table user (id INTEGER PRIMARY KEY, name TEXT, password TEXT)");
+        statement.execute("create table thing (id INTEGER PRIMARY KEY, name TEXT, userId INTEGER)");
+        statement.execute("insert into user (name, password) values ('Nick', '123456')");
+        statement.execute("insert into thing (name, userId) values ('Thing1', 1)");
+        statement.execute("insert into thing (name, userId) values (null, 1)");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void testEntityPlanSkipsColumnsOfJoinedTables() throws Exception {
+        ResultSet resultSet = statement.executeQuery("select * from thing join user on user.id = thing.userId order by thing.id");
+        ColumnPlan plan = ColumnPlan.forEntity(EntityMetadata.forClass(Thing.class), resultSet.getMetaData());
+
+        assertTrue(resultSet.next());
+        Thing thing = new Thing();
+        plan.read(thing, resultSet);
+
+        assertEquals(1, thing.getId());
+        assertEquals("Thing1", thing.getName());
+        assertEquals(1, thing.getUserId());
+        resultSet.close();
+    }
+
+    @Test
+    public void testEntityPlanWithUnknownColumn() throws Exception {
+        ResultSet resultSet = statement.executeQuery("select id, name, 1 as bogus from user");
+        try {
+            ColumnPlan.forEntity(EntityMetadata.forClass(User.class), resultSet.getMetaData());
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException e) {
+            assertEquals("No field could be found on com.njkremer.Sqlite.TestClass.User for the column bogus", e.getMessage());
+        }
+        resultSet.close();
+    }
+
+    @Test
+    public void testMapPlanKeysClashingColumnsByTable() throws Exception {
+        ResultSet resultSet = statement.executeQuery("select user.name, thing.name, thing.id from thing join user on user.id = thing.userId order by thing.id");
+        ColumnPlan plan = ColumnPlan.forMap(resultSet.getMetaData());
+
+        assertTrue(resultSet.next());
+        Map<String, Object> row = plan.readMap(resultSet);
+        assertEquals("Nick", row.get("name"));
+        assertEquals("Thing1", row.get("thing.name"));
+        assertEquals(1, row.get("id"));
+
+        assertTrue(resultSet.next());
+        row = plan.readMap(resultSet);
+        assertEquals("Nick", row.get("name"));
+        assertTrue(row.containsKey("thing.name"));
+        assertNull(row.get("thing.name"));
+        assertEquals(2, row.get("id"));
+
+        assertFalse(resultSet.next());
+        resultSet.close();
+    }
+
+    @Test
+    public void testMapPlanReadsNullsAfterTheFirstRow() throws Exception {
+        statement.execute("insert into thing (name, userId) values ('Thing3', null)");
+        ResultSet resultSet = statement.executeQuery("select userId from thing order by id");
+        ColumnPlan plan = ColumnPlan.forMap(resultSet.getMetaData());
+
+        resultSet.next();
+        assertEquals(1, plan.readMap(resultSet).get("userId"));
+        resultSet.next();
+        assertEquals(1, plan.readMap(resultSet).get("userId"));
+        resultSet.next();
+        assertNull(plan.readMap(resultSet).get("userId"));
+        resultSet.close();
+    }
+
+    private Connection connection;
+    private Statement statement;
+}
@@ -0,0 +1,246 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.njkremer.Sqlite.ConnectionPool.PooledConnection;
+import com.njkremer.Sqlite.TestClass.Thing;
+import com.njkremer.Sqlite.TestClass.User;
+
+public class TU_ConnectionPool {
+
+    @Before
+    public void setUp() throws IOException {
+        database = File.createTempFile("pool", ".db");
+        copy(new File("test/test.db"), database);
+    }
+
+    @After
+    public void tearDown() throws DataConnectionException {
+        if (pool != null) {
+            pool.close();
+        }
+        DataConnectionManager.close();
+        DataConnectionManager.init("test/test.db");
+
+        for (String suffix : Arrays.asList("", "-wal", "-shm")) {
+            new File(database.getPath() + suffix).delete();
+        }
+    }
+
+    @Test
+    public void testStatementsAreRoutedByType() throws Exception {
+        pool = ConnectionPool.open("jdbc:sqlite:" + database.getPath(), 2, 1000, 8);
+
+        PooledConnection writer = pool.acquire(StatementType.INSERT);
+        assertSame(pool.getWriterConnection(), writer.getConnection());
+        assertSame("A thread that has the writer reads from it", writer, pool.acquire(StatementType.SELECT));
+        pool.release(writer);
+        pool.release(writer);
+
+        PooledConnection reader = pool.acquire(StatementType.SELECT);
+        assertNotSame(writer, reader);
+        assertSame("Nested selects reuse the thread's reader", reader, pool.acquire(StatementType.SELECT));
+        pool.release(reader);
+        pool.release(reader);
+    }
+
+    @Test
+    public void testReadersAreReadOnlyAndUseTheWriteAheadLog() throws Exception {
+        pool = ConnectionPool.open("jdbc:sqlite:" + database.getPath(), 1, 1000, 8);
+
+        PooledConnection reader = pool.acquire(StatementType.SELECT);
+        Statement statement = reader.getConnection().createStatement();
+        try {
+            ResultSet resultSet = statement.executeQuery("pragma journal_mode;");
+            assertEquals("wal", resultSet.getString(1));
+            resultSet.close();
+
+            statement.execute("insert into user (name, password) values ('Nick', '123456');");
+            fail("The reader should be read only");
+        }
+        catch (SQLException e) {
+            // expected
+        }
+        finally {
+            statement.close();
+            pool.release(reader);
+        }
+    }
+
+    @Test
+    public void testReadingAndWritingThroughThePool() throws Exception {
+        DataConnectionManager.close();
+        DataConnectionManager.initPooled(database.getName(), database.getParent(), 4);
+
+        User user = new User();
+        user.setName("Nick");
+        user.setPassword("123456");
+        Thing thing = new Thing();
+        thing.setName("Thing1");
+        user.setThings(Arrays.asList(thing));
+        SqlStatement.insert(user).execute();
+
+        User nick = SqlStatement.select(User.class).where("name").eq("Nick").getFirst();
+        assertEquals("123456", nick.getPassword());
+        assertEquals(1, nick.getThings().size());
+        assertEquals("Thing1", nick.getThings().get(0).getName());
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws Exception {
+        DataConnectionManager.close();
+        DataConnectionManager.initPooled(database.getName(), database.getParent(), 4);
+
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            final int n = i;
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        if (n % 4 == 0) {
+                            User user = new User();
+                            user.setName("User" + n);
+                            user.setPassword("123456");
+                            SqlStatement.insert(user).execute();
+                        }
+                        else {
+                            SqlStatement.select(User.class).where("name").like("User%").getList();
+                        }
+                    }
+                    catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(Collections.emptyList(), errors);
+        assertEquals(50, SqlStatement.select(User.class).where("name").like("User%").getCount());
+    }
+
+    @Test
+    public void testTransactionKeepsOtherWritersOut() throws Exception {
+        DataConnectionManager.close();
+        DataConnectionManager.initPooled(database.getName(), database.getParent(), 2);
+
+        DataConnectionManager.beginTransaction();
+        User user = new User();
+        user.setName("Nick");
+        user.setPassword("123456");
+        SqlStatement.insert(user).execute();
+        assertEquals("The transaction sees its own insert", 1, SqlStatement.select(User.class).getCount());
+
+        final int[] countSeenByOtherThread = new int[1];
+        Thread other = new Thread() {
+            public void run() {
+                try {
+                    countSeenByOtherThread[0] = SqlStatement.select(User.class).getCount();
+                    User other = new User();
+                    other.setName("John");
+                    other.setPassword("123456");
+                    SqlStatement.insert(other).execute();
+                }
+                catch (DataConnectionException e) {
+                    countSeenByOtherThread[0] = -1;
+                }
+            }
+        };
+        other.start();
+        other.join(500);
+        assertTrue("The other thread's insert should wait on the transaction", other.isAlive());
+        assertEquals("Readers don't see uncommitted changes", 0, countSeenByOtherThread[0]);
+
+        DataConnectionManager.rollbackTransaction();
+        other.join(5000);
+        assertEquals(1, SqlStatement.select(User.class).getCount());
+        assertEquals("John", SqlStatement.select(User.class).getFirst().getName());
+    }
+
+    @Test
+    public void testAResultIteratorCantBeClosedOnAnotherThread() throws Exception {
+        DataConnectionManager.close();
+        DataConnectionManager.initPooled(database.getName(), database.getParent(), 1);
+
+        final ResultIterator<User> users = SqlStatement.select(User.class).iterate();
+        final Throwable[] error = new Throwable[1];
+        Thread other = new Thread() {
+            public void run() {
+                try {
+                    users.close();
+                }
+                catch (Throwable e) {
+                    error[0] = e;
+                }
+            }
+        };
+        other.start();
+        other.join(5000);
+        assertTrue(String.valueOf(error[0]), error[0] instanceof IllegalStateException);
+        assertFalse(users.isClosed());
+
+        users.close();
+        // The only reader was given back, so another thread can query.
+        final int[] count = new int[] { -1 };
+        Thread reader = new Thread() {
+            public void run() {
+                try {
+                    count[0] = SqlStatement.select(User.class).getCount();
+                }
+                catch (DataConnectionException e) {
+                    count[0] = -2;
+                }
+            }
+        };
+        reader.start();
+        reader.join(5000);
+        assertEquals(0, count[0]);
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        InputStream in = new FileInputStream(from);
+        OutputStream out = new FileOutputStream(to);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    private File database;
+    private ConnectionPool pool;
+}
@@ -0,0 +1,79 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.BadOneToMany;
+import com.njkremer.Sqlite.TestClass.Thing;
+import com.njkremer.Sqlite.TestClass.User;
+import com.njkremer.Sqlite.TestClass.UserAccessGroup;
+
+public class TU_EntityMetadata {
+
+    @Test
+    public void testMetadataIsCachedPerClass() {
+        assertSame(EntityMetadata.forClass(User.class), EntityMetadata.forClass(User.class));
+    }
+
+    @Test
+    public void testColumnsAndPrimaryKey() {
+        EntityMetadata metadata = EntityMetadata.forClass(User.class);
+
+        assertEquals("user", metadata.getTableName());
+        assertEquals(3, metadata.getColumns().size());
+        assertEquals("id", metadata.getColumns().get(0).getName());
+        assertEquals("name", metadata.getColumns().get(1).getName());
+        assertEquals("password", metadata.getColumns().get(2).getName());
+        assertEquals("id", metadata.getPrimaryKey().getName());
+        assertNull("OneToMany fields aren't columns", metadata.getColumn("things"));
+    }
+
+    @Test
+    public void testAutoIncrementColumnsArentWritable() {
+        EntityMetadata metadata = EntityMetadata.forClass(User.class);
+
+        assertEquals(2, metadata.getWritableColumns().size());
+        assertEquals("name", metadata.getWritableColumns().get(0).getName());
+        assertEquals("password", metadata.getWritableColumns().get(1).getName());
+    }
+
+    @Test
+    public void testClassWithoutPrimaryKey() {
+        EntityMetadata metadata = EntityMetadata.forClass(UserAccessGroup.class);
+
+        assertNull(metadata.getPrimaryKey());
+        assertFalse(metadata.hasRelationships());
+    }
+
+    @Test
+    public void testRelationships() throws DataConnectionException {
+        EntityMetadata metadata = EntityMetadata.forClass(User.class);
+
+        assertTrue(metadata.hasRelationships());
+        Relationship relationship = metadata.getRelationships().get("things");
+        assertEquals(Thing.class, relationship.getRelatedClassType());
+        assertEquals(Long.TYPE, relationship.getFkClassType());
+        assertSame(relationship, metadata.getRelationshipForGetter("getThings"));
+        assertNull(metadata.getRelationshipForGetter("getName"));
+    }
+
+    @Test
+    public void testBadRelationshipIsReportedWhenRelationshipsAreUsed() {
+        EntityMetadata metadata = EntityMetadata.forClass(BadOneToMany.class);
+        assertEquals("id", metadata.getPrimaryKey().getName());
+
+        try {
+            metadata.getRelationships();
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException e) {
+            assertEquals("The return type of a OneToMany relationship must be a List Type for field things", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+public class TU_PrimaryKeyCache {
+
+    @Test
+    public void testCachedRowsAreCopies() {
+        Date date = new Date(0);
+        cache.put("user", 1L, new Object[] { "Nick", date }, cache.getGeneration("user"));
+
+        Object[] values = cache.get("user", 1L);
+        assertArrayEquals(new Object[] { "Nick", date }, values);
+        assertNotSame("Dates can be changed so they're copied", date, values[1]);
+        values[0] = "John";
+        assertEquals("Nick", cache.get("user", 1L)[0]);
+    }
+
+    @Test
+    public void testWritingToATableInvalidatesItsRows() {
+        cache.put("user", 1L, new Object[] { "Nick" }, cache.getGeneration("user"));
+        cache.put("thing", 1L, new Object[] { "Thing1" }, cache.getGeneration("thing"));
+
+        cache.invalidate("user");
+
+        assertNull(cache.get("user", 1L));
+        assertEquals("Thing1", cache.get("thing", 1L)[0]);
+    }
+
+    @Test
+    public void testRowReadDuringAWriteIsntCached() {
+        long generation = cache.getGeneration("user");
+        cache.invalidate("user");
+        cache.put("user", 1L, new Object[] { "Nick" }, generation);
+
+        assertNull(cache.get("user", 1L));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRowIsEvicted() {
+        cache.put("user", 1L, new Object[] { "Nick" }, 0);
+        cache.put("user", 2L, new Object[] { "John" }, 0);
+        cache.get("user", 1L);
+        cache.put("user", 3L, new Object[] { "Amy" }, 0);
+
+        assertNull(cache.get("user", 2L));
+        assertEquals("Nick", cache.get("user", 1L)[0]);
+        assertEquals(3L, PrimaryKeyCache.normalize(3));
+        assertEquals("Amy", cache.get("user", PrimaryKeyCache.normalize(3))[0]);
+    }
+
+    private PrimaryKeyCache cache = new PrimaryKeyCache(2);
+}
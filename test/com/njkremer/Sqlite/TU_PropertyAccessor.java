@@ -0,0 +1,60 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.TestObject;
+import com.njkremer.Sqlite.TestClass.User;
+
+public class TU_PropertyAccessor {
+
+    @Test
+    public void testAccessorsAreGeneratedForPublicProperties() {
+        PropertyAccessor accessor = EntityMetadata.forClass(User.class).getColumn("id").getAccessor();
+
+        assertTrue("The accessor should be generated next to the POJO", accessor.getClass().getName().startsWith(User.class.getName()));
+    }
+
+    @Test
+    public void testPrimitiveProperty() {
+        PropertyAccessor accessor = EntityMetadata.forClass(User.class).getColumn("id").getAccessor();
+        User user = new User();
+
+        accessor.setLong(user, 42l);
+        assertEquals(42l, user.getId());
+        assertEquals(42l, accessor.getLong(user));
+        assertEquals(Long.valueOf(42l), accessor.get(user));
+
+        accessor.set(user, 7l);
+        assertEquals(7l, user.getId());
+    }
+
+    @Test
+    public void testObjectProperty() {
+        PropertyAccessor accessor = EntityMetadata.forClass(User.class).getColumn("name").getAccessor();
+        User user = new User();
+
+        accessor.set(user, "Nick");
+        assertEquals("Nick", user.getName());
+        assertEquals("Nick", accessor.get(user));
+    }
+
+    @Test
+    public void testBoxedPropertyThroughPrimitiveMethods() {
+        PropertyAccessor intAccessor = EntityMetadata.forClass(TestObject.class).getColumn("intType").getAccessor();
+        PropertyAccessor booleanAccessor = EntityMetadata.forClass(TestObject.class).getColumn("booleanType").getAccessor();
+        TestObject test = new TestObject();
+
+        assertNull(intAccessor.get(test));
+        intAccessor.setInt(test, 42);
+        assertEquals(Integer.valueOf(42), test.getIntType());
+        assertEquals(42, intAccessor.getInt(test));
+
+        booleanAccessor.setBoolean(test, true);
+        assertEquals(Boolean.TRUE, test.isBooleanType());
+        assertTrue(booleanAccessor.getBoolean(test));
+    }
+}
@@ -0,0 +1,113 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.Thing;
+import com.njkremer.Sqlite.TestClass.User;
+
+public class TU_QueryCache {
+
+    @Test
+    public void testKeysIncludeTheValues() {
+        String[] tables = { "user" };
+        cache.put(key("select user.* from user where user.name = ?;", "Nick"), "Nick's result", tables, cache.getGenerations(tables));
+
+        assertEquals("Nick's result", cache.get(key("select user.* from user where user.name = ?;", "Nick")));
+        assertNull(cache.get(key("select user.* from user where user.name = ?;", "John")));
+        assertNull(cache.get(new QueryCache.Key("count", "select user.* from user where user.name = ?;", Arrays.<Object>asList("Nick"))));
+    }
+
+    @Test
+    public void testBlobValuesAreComparedByTheirContents() {
+        String[] tables = { "attachment" };
+        String sql = "select attachment.* from attachment where attachment.contents = ?;";
+        cache.put(key(sql, new byte[] { 1, 2, 3 }), "The result", tables, cache.getGenerations(tables));
+
+        assertEquals("The result", cache.get(key(sql, new byte[] { 1, 2, 3 })));
+        assertNull(cache.get(key(sql, new byte[] { 1, 2, 4 })));
+    }
+
+    @Test
+    public void testWritingToAJoinedTableInvalidatesTheResult() {
+        String[] tables = { "thing", "user" };
+        cache.put(key("select thing.* from thing join user on user.id = thing.userId;"), "result", tables, cache.getGenerations(tables));
+
+        cache.invalidate("thing");
+        cache.invalidate("user");
+        cache.invalidate("accessgroup");
+
+        assertNull(cache.get(key("select thing.* from thing join user on user.id = thing.userId;")));
+    }
+
+    @Test
+    public void testResultReadDuringAWriteIsntCached() {
+        String[] tables = { "user" };
+        long[] generations = cache.getGenerations(tables);
+        cache.invalidate("user");
+        cache.put(key("select count(*) from user;"), 1, tables, generations);
+
+        assertNull(cache.get(key("select count(*) from user;")));
+    }
+
+    @Test
+    public void testResultsExpire() throws InterruptedException {
+        String[] tables = { "user" };
+        cache.setTimeToLive(1);
+        cache.put(key("select count(*) from user;"), 1, tables, cache.getGenerations(tables));
+        Thread.sleep(10);
+
+        assertNull(cache.get(key("select count(*) from user;")));
+    }
+
+    @Test
+    public void testListsAndCountsComeFromTheCache() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        DataConnectionManager.setQueryCacheSize(10);
+        try {
+            createUser("Nick");
+            assertEquals(1, SqlStatement.select(User.class).where("name").eq("Nick").getCount());
+            List<User> users = SqlStatement.select(User.class).getList();
+            users.get(0).setName("Changed");
+            long hits = DataConnectionManager.getQueryCacheHits();
+
+            assertEquals(1, SqlStatement.select(User.class).where("name").eq("Nick").getCount());
+            assertEquals("Each list gets its own copies of the objects", "Nick", SqlStatement.select(User.class).getList().get(0).getName());
+            assertEquals(hits + 2, DataConnectionManager.getQueryCacheHits());
+
+            createUser("John");
+            assertEquals("Inserting into the table invalidates its results", 2, SqlStatement.select(User.class).getList().size());
+
+            List<Thing> things = SqlStatement.select(Thing.class).join(User.class, "id", Thing.class, "userId").getList();
+            assertEquals(0, things.size());
+            Thing thing = new Thing();
+            thing.setName("Thing1");
+            thing.setUserId(users.get(0).getId());
+            SqlStatement.insert(thing).execute();
+            assertEquals(1, SqlStatement.select(Thing.class).join(User.class, "id", Thing.class, "userId").getList().size());
+        }
+        finally {
+            DataConnectionManager.setQueryCacheSize(0);
+            SqlStatement.delete(User.class).where("name").like("%").execute();
+            SqlStatement.delete(Thing.class).where("name").like("%").execute();
+        }
+    }
+
+    private void createUser(String name) throws DataConnectionException {
+        User user = new User();
+        user.setName(name);
+        user.setPassword("123456");
+        SqlStatement.insert(user).execute();
+    }
+
+    private static QueryCache.Key key(String sql, Object... values) {
+        return new QueryCache.Key("list:", sql, Arrays.asList(values));
+    }
+
+    private QueryCache cache = new QueryCache(10, 0);
+}
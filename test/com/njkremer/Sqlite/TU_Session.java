@@ -0,0 +1,107 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.User;
+
+public class TU_Session {
+
+    @After
+    public void tearDown() throws DataConnectionException {
+        if (Session.getCurrent() != null) {
+            Session.getCurrent().close();
+        }
+        DataConnectionManager.init("test/test.db");
+        SqlStatement.delete(User.class).where("name").like("%").execute();
+    }
+
+    @Test
+    public void testFindingTheSameObjectTwice() throws DataConnectionException {
+        createUser("Nick");
+        long id = SqlStatement.select(User.class).getFirst().getId();
+
+        Session session = Session.open();
+        User nick = SqlStatement.findById(User.class, id);
+        long statements = getStatementCount();
+
+        assertTrue("The same object should be returned", nick == SqlStatement.findById(User.class, (int) id));
+        assertEquals("The database shouldn't be queried again", statements, getStatementCount());
+        assertTrue(session.contains(nick));
+        assertEquals(1, session.size());
+    }
+
+    @Test
+    public void testQueriesReturnTheObjectsInTheSession() throws DataConnectionException {
+        createUser("Nick");
+        createUser("John");
+
+        Session.open();
+        List<User> users = SqlStatement.select(User.class).orderBy("name").getList();
+        User john = users.get(0);
+        john.setPassword("changed");
+
+        assertTrue(john == SqlStatement.findById(User.class, john.getId()));
+        List<User> again = SqlStatement.select(User.class).orderBy("name").getList();
+        assertTrue(john == again.get(0));
+        assertTrue(users.get(1) == again.get(1));
+        assertEquals("The row shouldn't be read into the object again", "changed", again.get(0).getPassword());
+    }
+
+    @Test
+    public void testWritingEvictsTheTable() throws DataConnectionException {
+        createUser("Nick");
+
+        Session session = Session.open();
+        User nick = SqlStatement.select(User.class).getFirst();
+        nick.setName("John");
+        SqlStatement.update(nick).execute();
+
+        assertFalse(session.contains(nick));
+        User john = SqlStatement.findById(User.class, nick.getId());
+        assertFalse(nick == john);
+        assertEquals("John", john.getName());
+
+        session.evict(john);
+        assertEquals(0, session.size());
+    }
+
+    @Test
+    public void testClosingTheSession() throws DataConnectionException {
+        createUser("Nick");
+
+        Session session = Session.open();
+        try {
+            Session.open();
+            fail("An exception should have been thrown");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("A session is already open on this thread", e.getMessage());
+        }
+        User nick = SqlStatement.select(User.class).getFirst();
+        session.close();
+
+        assertNull(Session.getCurrent());
+        assertFalse(nick == SqlStatement.select(User.class).getFirst());
+    }
+
+    private long getStatementCount() {
+        return DataConnectionManager.getStatementCacheHits() + DataConnectionManager.getStatementCacheMisses();
+    }
+
+    private void createUser(String name) throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        User user = new User();
+        user.setName(name);
+        user.setPassword("123456");
+        SqlStatement.insert(user).execute();
+    }
+}
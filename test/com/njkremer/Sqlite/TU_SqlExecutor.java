@@ -1,16 +1,22 @@
 package com.njkremer.Sqlite;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
@@ -19,6 +25,8 @@ import org.junit.Test;
 import com.njkremer.Sqlite.ColumnExpression;
 import com.njkremer.Sqlite.DataConnectionException;
 import com.njkremer.Sqlite.DataConnectionManager;
+import com.njkremer.Sqlite.DateStorage;
+import com.njkremer.Sqlite.LazyRelationships;
 import com.njkremer.Sqlite.SqlExecutor;
 import com.njkremer.Sqlite.SqlStatement;
 import com.njkremer.Sqlite.TestClass.AccessGroup;
@@ -73,6 +81,41 @@ public class TU_SqlExecutor {
         assertEquals("select user.* from user where user.name like ? and user.password = ? order by name desc;", sql);
     }
 
+    @Test
+    public void testSelectWithIn() throws DataConnectionException {
+        SqlExecutor<User> executor = new SqlExecutor<User>();
+        String sql = executor.select(User.class).where("id").in(Arrays.asList(1, 2, 3)).getQuery();
+        assertEquals("select user.* from user where user.id in (?, ?, ?);", sql);
+        assertEquals(Arrays.<Object>asList(1, 2, 3), executor.getParameters());
+    }
+
+    @Test
+    public void testSelectOrderByMoreThanOneField() throws DataConnectionException {
+        SqlExecutor<User> executor = new SqlExecutor<User>();
+        String sql = executor.select(User.class).orderBy("name").asc().orderBy("password").desc().orderBy("id").getQuery();
+        assertEquals("select user.* from user order by name asc, password desc, id;", sql);
+    }
+
+    @Test
+    public void testSelectWithLimitAndOffset() throws DataConnectionException {
+        SqlExecutor<User> executor = new SqlExecutor<User>();
+        String sql = executor.select(User.class).orderBy("name").limit(10).offset(20).getQuery();
+        assertEquals("select user.* from user order by name limit ? offset ?;", sql);
+        assertEquals(Arrays.<Object>asList(10, 20), executor.getParameters());
+
+        sql = executor.select(User.class).offset(20).getQuery();
+        assertEquals("select user.* from user limit ? offset ?;", sql);
+        assertEquals(Arrays.<Object>asList(-1, 20), executor.getParameters());
+    }
+
+    @Test
+    public void testSelectAfterASortKey() throws DataConnectionException {
+        SqlExecutor<User> executor = new SqlExecutor<User>();
+        String sql = executor.select(User.class).where("name").like("N%").or("name").like("J%").orderBy("name").desc().after("Nick", 3L).limit(10).getQuery();
+        assertEquals("select user.* from user where (user.name like ? or user.name like ?) and ((name < ?) or (name = ? and user.id > ?)) order by name desc, user.id limit ?;", sql);
+        assertEquals(Arrays.<Object>asList("N%", "J%", "Nick", "Nick", 3L, 10), executor.getParameters());
+    }
+
     @Test
     public void testUpdate() throws DataConnectionException {
         User user = new User();
@@ -232,6 +275,112 @@ public class TU_SqlExecutor {
         deleteUser(users.get(1));
     }
 
+    @Test
+    public void testPagingFromDb() throws DataConnectionException {
+        for (String name : Arrays.asList("Nick", "John", "Amy", "John", "Zed")) {
+            createUser(name);
+        }
+
+        List<User> firstPage = e.select(User.class).orderBy("name").limit(2).getList();
+        List<User> secondPage = e.select(User.class).orderBy("name").after(firstPage.get(1)).limit(2).getList();
+        List<User> offsetPage = e.select(User.class).orderBy("name").orderBy("id").limit(2).offset(2).getList();
+
+        assertEquals("Amy", firstPage.get(0).getName());
+        assertEquals("John", firstPage.get(1).getName());
+        assertEquals(2, secondPage.size());
+        assertEquals("John", secondPage.get(0).getName());
+        assertTrue(secondPage.get(0).getId() > firstPage.get(1).getId());
+        assertEquals("Nick", secondPage.get(1).getName());
+        assertEquals(secondPage.get(0).getId(), offsetPage.get(0).getId());
+        assertEquals(secondPage.get(1).getId(), offsetPage.get(1).getId());
+
+        User lastUser = secondPage.get(1);
+        List<User> lastPage = e.select(User.class).orderBy("name").after(lastUser.getName(), lastUser.getId()).limit(2).getList();
+        assertEquals(1, lastPage.size());
+        assertEquals("Zed", lastPage.get(0).getName());
+    }
+
+    @Test
+    public void testIncludingARelationship() throws DataConnectionException {
+        List<User> newUsers = new ArrayList<User>();
+        for (String name : Arrays.asList("Nick", "John", "Amy")) {
+            User user = new User();
+            user.setName(name);
+            Thing thing1 = new Thing();
+            thing1.setName(name + "1");
+            Thing thing2 = new Thing();
+            thing2.setName(name + "2");
+            user.setThings(Arrays.asList(thing1, thing2));
+            newUsers.add(user);
+        }
+        DataConnectionManager.init("test/test.db");
+        SqlStatement.insertAll(newUsers);
+        createUser("Zed");
+
+        List<User> users = e.select(User.class).include("things").orderBy("name").getList();
+        long statements = DataConnectionManager.getStatementCacheHits() + DataConnectionManager.getStatementCacheMisses();
+
+        assertEquals(4, users.size());
+        assertEquals("Amy", users.get(0).getName());
+        assertEquals(Arrays.asList("Amy1", "Amy2"), Arrays.asList(users.get(0).getThings().get(0).getName(), users.get(0).getThings().get(1).getName()));
+        assertEquals("John1", users.get(1).getThings().get(0).getName());
+        assertEquals("Nick2", users.get(2).getThings().get(1).getName());
+        assertEquals(0, users.get(3).getThings().size());
+        assertEquals("The things were all loaded up front", statements, DataConnectionManager.getStatementCacheHits() + DataConnectionManager.getStatementCacheMisses());
+    }
+
+    @Test
+    public void testFaultingARelationshipLoadsItForTheOtherResults() throws DataConnectionException {
+        List<User> newUsers = new ArrayList<User>();
+        for (String name : Arrays.asList("Amy", "John", "Nick")) {
+            User user = new User();
+            user.setName(name);
+            Thing thing = new Thing();
+            thing.setName(name + "1");
+            user.setThings(Arrays.asList(thing));
+            newUsers.add(user);
+        }
+        DataConnectionManager.init("test/test.db");
+        SqlStatement.insertAll(newUsers);
+
+        List<User> users = e.select(User.class).orderBy("name").getList();
+        assertEquals("Amy1", users.get(0).getThings().get(0).getName());
+        long statements = DataConnectionManager.getStatementCacheHits() + DataConnectionManager.getStatementCacheMisses();
+
+        assertTrue(((LazyRelationships) users.get(2)).isLoaded("things"));
+        assertEquals("John1", users.get(1).getThings().get(0).getName());
+        assertEquals("Nick1", users.get(2).getThings().get(0).getName());
+        assertEquals("The things were loaded for every user at once", statements, DataConnectionManager.getStatementCacheHits() + DataConnectionManager.getStatementCacheMisses());
+
+        DataConnectionManager.setFaultingBatchSize(1);
+        try {
+            users = e.select(User.class).orderBy("name").getList();
+            assertEquals(1, users.get(0).getThings().size());
+            assertFalse(((LazyRelationships) users.get(1)).isLoaded("things"));
+
+            DataConnectionManager.setFaultingBatchSize(2);
+            users = e.select(User.class).orderBy("name").getList();
+            assertEquals("John1", users.get(1).getThings().get(0).getName());
+            assertTrue("The batch starts at the faulted object", ((LazyRelationships) users.get(2)).isLoaded("things"));
+            assertFalse(((LazyRelationships) users.get(0)).isLoaded("things"));
+        }
+        finally {
+            DataConnectionManager.setFaultingBatchSize(25);
+        }
+    }
+
+    @Test
+    public void testIncludingSomethingThatIsntARelationship() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        try {
+            e.select(User.class).include("name");
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException ex) {
+            assertEquals("No OneToMany relationship named name could be found on User", ex.getMessage());
+        }
+    }
+
     @Test
     public void testGetFirstWithEmptyResultSet() throws DataConnectionException {
         User u = SqlStatement.select(User.class).getFirst();
@@ -272,6 +421,84 @@ public class TU_SqlExecutor {
         deleteUser(nick);
     }
 
+    @Test
+    public void testARelationshipIsOnlyLoadedOnce() throws DataConnectionException {
+        createUser("Nick");
+        createThing("Thing1");
+
+        User nick = e.select(User.class).getFirst();
+        assertFalse(((LazyRelationships) nick).isLoaded("things"));
+        List<Thing> nicksThings = nick.getThings();
+        long statements = DataConnectionManager.getStatementCacheHits() + DataConnectionManager.getStatementCacheMisses();
+
+        assertTrue(((LazyRelationships) nick).isLoaded("things"));
+        assertTrue("The same list should be returned", nicksThings == nick.getThings());
+        assertEquals("The things should only be queried once", statements, DataConnectionManager.getStatementCacheHits() + DataConnectionManager.getStatementCacheMisses());
+    }
+
+    @Test
+    public void testRefreshingARelationship() throws DataConnectionException {
+        createUser("Nick");
+        createThing("Thing1");
+
+        User nick = e.select(User.class).getFirst();
+        assertEquals(1, nick.getThings().size());
+        createThing("Thing2");
+        assertEquals("The loaded things shouldn't change", 1, nick.getThings().size());
+
+        ((LazyRelationships) nick).refresh("things");
+        assertEquals(2, nick.getThings().size());
+
+        nick.setThings(new ArrayList<Thing>());
+        assertEquals("Setting the things should replace the loaded ones", 0, nick.getThings().size());
+
+        try {
+            ((LazyRelationships) nick).refresh("name");
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException ex) {
+            assertEquals("No OneToMany relationship named name could be found on User", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testLoadingARelationshipFromManyThreads() throws DataConnectionException, InterruptedException {
+        createUser("Nick");
+        createThing("Thing1");
+        createThing("Thing2");
+
+        final User nick = e.select(User.class).getFirst();
+        final List<List<Thing>> results = Collections.synchronizedList(new ArrayList<List<Thing>>());
+        ExecutorService pool = Executors.newFixedThreadPool(10);
+        for (int i = 0; i < 10; i++) {
+            pool.execute(new Runnable() {
+                public void run() {
+                    results.add(nick.getThings());
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertEquals(10, results.size());
+        for (List<Thing> things : results) {
+            assertTrue("Every thread should get the same list", things == nick.getThings());
+        }
+        assertEquals(2, nick.getThings().size());
+    }
+
+    @Test
+    public void testObjectsWithRelationshipsShareAProxyClass() throws DataConnectionException {
+        createUser("Nick");
+        createUser("John");
+
+        List<User> users = e.select(User.class).getList();
+        assertTrue("The objects should be proxies", users.get(0) instanceof LazyRelationships);
+        assertTrue(users.get(0).getClass() != User.class);
+        assertTrue("The proxy class should be generated once", users.get(0).getClass() == users.get(1).getClass());
+        assertTrue(users.get(0).getClass() == e.select(User.class).getFirst().getClass());
+    }
+
     @Test
     public void testToMakeSureNonRelationshipObjectArentProxies() throws DataConnectionException {
         createUser("Nick");
@@ -487,6 +714,21 @@ public class TU_SqlExecutor {
         deleteUser(user);
     }
 
+    @Test
+    public void testRepeatedQueriesReuseThePreparedStatement() throws DataConnectionException {
+        createUser("Nick");
+
+        e.select(User.class).where("name").eq("Nick").getList();
+        long hits = DataConnectionManager.getStatementCacheHits();
+        long misses = DataConnectionManager.getStatementCacheMisses();
+        User nick = e.select(User.class).where("name").eq("Nick").getFirst();
+
+        assertEquals("Nick", nick.getName());
+        assertEquals(hits + 1, DataConnectionManager.getStatementCacheHits());
+        assertEquals(misses, DataConnectionManager.getStatementCacheMisses());
+        deleteUser(nick);
+    }
+
     @Test
     public void testSelectCountStatementInDb() throws DataConnectionException {
         createUser("Nick");
@@ -507,6 +749,73 @@ public class TU_SqlExecutor {
         deleteUser(e.select(User.class).getList().get(0));
     }
 
+    @Test
+    public void testGettingMapWithClashingColumnsInDb() throws DataConnectionException {
+        createUser("Nick");
+        createThing("Thing1");
+
+        List<Map<String, Object>> map = thingExecutor.select(Thing.class)
+        .join(User.class, "id", Thing.class, "userId")
+        .getColumns(new ColumnExpression().column("user.name").column("thing.name"));
+
+        assertEquals(1, map.size());
+        assertEquals("Nick", map.get(0).get("name"));
+        assertEquals("Thing1", map.get(0).get("thing.name"));
+    }
+
+    @Test
+    public void testIteratingOverResults() throws DataConnectionException {
+        createUser("Nick");
+        createUser("John");
+
+        List<String> names = new ArrayList<String>();
+        ResultIterator<User> users = e.select(User.class).orderBy("name").fetchSize(1).iterate();
+        for (User user : users) {
+            names.add(user.getName());
+        }
+
+        assertEquals(Arrays.asList("John", "Nick"), names);
+        assertTrue("The iterator closes itself after the last row", users.isClosed());
+    }
+
+    @Test
+    public void testForEachWithAReusedInstance() throws DataConnectionException {
+        createUser("Nick");
+        createUser("John");
+
+        final List<String> names = new ArrayList<String>();
+        final List<User> instances = new ArrayList<User>();
+        e.select(User.class).orderBy("name").forEach(new RowHandler<User>() {
+            public void handle(User user) {
+                names.add(user.getName());
+                if (!instances.contains(user)) {
+                    instances.add(user);
+                }
+            }
+        }, true);
+
+        assertEquals(Arrays.asList("John", "Nick"), names);
+        assertEquals(1, instances.size());
+        assertEquals(User.class, instances.get(0).getClass());
+    }
+
+    @Test
+    public void testClosingAnIteratorBeforeTheEnd() throws DataConnectionException {
+        createUser("Nick");
+        createUser("John");
+
+        ResultIterator<Map<String, Object>> names = e.select(User.class).orderBy("name").iterateColumns(new ColumnExpression().column("name"));
+        try {
+            assertEquals("John", names.next().get("name"));
+        }
+        finally {
+            names.close();
+        }
+
+        assertFalse(names.hasNext());
+        assertEquals(2, e.select(User.class).getCount());
+    }
+
     @Test
     public void testGettingVariousDataTypes() throws DataConnectionException {
         DataConnectionManager.init("test/test.db");
@@ -560,6 +869,67 @@ public class TU_SqlExecutor {
 
     }
 
+    @Test
+    public void testStoringDatesAsEpochMillis() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        DataConnectionManager.setDateStorage(DateStorage.EPOCH_MILLIS);
+        try {
+            Date date = new Date(1325419200123L);
+            TestObject test = new TestObject();
+            test.setDateType(date);
+            test.setStringType("Epoch");
+            te.insert(test).execute();
+
+            assertEquals("The milliseconds should be kept", date, te.select(TestObject.class).getFirst().getDateType());
+            assertEquals(1, te.select(TestObject.class).where("dateType").eq(date).getCount());
+        }
+        finally {
+            DataConnectionManager.setDateStorage(DateStorage.ISO_TEXT);
+        }
+    }
+
+    @Test
+    public void testRunningQueriesAsynchronously() throws Exception {
+        createUser("Nick");
+        createUser("John");
+
+        Future<List<User>> users = SqlStatement.select(User.class).orderBy("name").getListAsync();
+        Future<Integer> count = SqlStatement.select(User.class).getCountAsync();
+        Future<User> nick = SqlStatement.select(User.class).where("name").eq("Nick").getFirstAsync();
+        assertEquals(2, users.get().size());
+        assertEquals("John", users.get().get(0).getName());
+        assertEquals(2, count.get().intValue());
+        assertEquals("Nick", nick.get().getName());
+
+        nick.get().setPassword("changed");
+        SqlStatement.update(nick.get()).executeAsync().get();
+        assertEquals("changed", SqlStatement.select(User.class).where("name").eq("Nick").getFirst().getPassword());
+
+        try {
+            SqlStatement.select(User.class).where("missing").eq("value").getListAsync().get();
+            fail("An exception should have been thrown");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DataConnectionException);
+        }
+    }
+
+    @Test
+    public void testRunningAQueryAsynchronouslyInATransaction() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        DataConnectionManager.beginTransaction();
+        try {
+            SqlStatement.select(User.class).getListAsync();
+            fail("An exception should have been thrown");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("Statements can't be run asynchronously in a transaction, since they wouldn't be part of it", e.getMessage());
+        }
+        finally {
+            DataConnectionManager.rollbackTransaction();
+        }
+    }
+
     @Test
     public void testMultiTreading() throws DataConnectionException, InterruptedException {
         createUser("Nick");
@@ -1,10 +1,20 @@
 package com.njkremer.Sqlite;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import com.njkremer.Sqlite.DataConnectionException;
 import com.njkremer.Sqlite.DataConnectionManager;
 import com.njkremer.Sqlite.SqlStatement;
+import com.njkremer.Sqlite.TestClass.Thing;
 import com.njkremer.Sqlite.TestClass.User;
 
 public class TU_SqlStatement {
@@ -40,6 +50,226 @@ public class TU_SqlStatement {
         deleteUser(u);
     }
 
+    @Test
+    public void testInTransactionCommits() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        int count = SqlStatement.inTransaction(new TransactionWork<Integer>() {
+            public Integer execute() throws DataConnectionException {
+                assertTrue(DataConnectionManager.isInTransaction());
+                createUser("Nick");
+                createUser("John");
+                return SqlStatement.select(User.class).getCount();
+            }
+        });
+
+        assertFalse(DataConnectionManager.isInTransaction());
+        assertEquals(2, count);
+        assertEquals(2, SqlStatement.select(User.class).getCount());
+
+        SqlStatement.delete(User.class).where("name").like("%").execute();
+    }
+
+    @Test
+    public void testInTransactionRollsBackWhenTheWorkThrows() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        try {
+            SqlStatement.inTransaction(new TransactionWork<Void>() {
+                public Void execute() throws DataConnectionException {
+                    createUser("Nick");
+                    throw new DataConnectionException("Something went wrong");
+                }
+            });
+            fail("The exception should have been rethrown");
+        }
+        catch (DataConnectionException e) {
+            assertEquals("Something went wrong", e.getMessage());
+        }
+
+        assertFalse(DataConnectionManager.isInTransaction());
+        assertEquals(0, SqlStatement.select(User.class).getCount());
+    }
+
+    @Test
+    public void testNestedTransactionRollsBackToItsSavepoint() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        SqlStatement.inTransaction(new TransactionWork<Void>() {
+            public Void execute() throws DataConnectionException {
+                createUser("Nick");
+                try {
+                    SqlStatement.inTransaction(new TransactionWork<Void>() {
+                        public Void execute() throws DataConnectionException {
+                            createUser("John");
+                            throw new IllegalStateException();
+                        }
+                    });
+                    fail("The exception should have been rethrown");
+                }
+                catch (IllegalStateException e) {
+                    // expected
+                }
+                assertTrue(DataConnectionManager.isInTransaction());
+                return null;
+            }
+        });
+
+        assertEquals(1, SqlStatement.select(User.class).getCount());
+        User u = SqlStatement.select(User.class).getFirst();
+        assertEquals("Nick", u.getName());
+
+        deleteUser(u);
+    }
+
+    @Test
+    public void testCommitWithoutATransaction() {
+        DataConnectionManager.init("test/test.db");
+        try {
+            DataConnectionManager.commitTransaction();
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException e) {
+            assertEquals("There is no transaction to commit", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInsertAllWritesBackTheGeneratedKeys() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        List<User> users = new ArrayList<User>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setName("User" + i);
+            user.setPassword("123456");
+            Thing thing = new Thing();
+            thing.setName("Thing" + i);
+            user.setThings(Arrays.asList(thing));
+            users.add(user);
+        }
+
+        List<Long> keys = SqlStatement.insertAll(users, 2);
+
+        assertEquals(5, keys.size());
+        for (int i = 0; i < 5; i++) {
+            User user = users.get(i);
+            assertEquals(keys.get(i).longValue(), user.getId());
+            assertEquals("User" + i, SqlStatement.select(User.class).where("id").eq(user.getId()).getFirst().getName());
+            Thing thing = SqlStatement.select(Thing.class).where("name").eq("Thing" + i).getFirst();
+            assertEquals(user.getId(), thing.getUserId());
+        }
+
+        SqlStatement.delete(Thing.class).where("name").like("%").execute();
+        SqlStatement.delete(User.class).where("name").like("%").execute();
+    }
+
+    @Test
+    public void testInsertAllIsRolledBackWithTheTransactionItsIn() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        try {
+            SqlStatement.inTransaction(new TransactionWork<Void>() {
+                public Void execute() throws DataConnectionException {
+                    User user = new User();
+                    user.setName("Nick");
+                    user.setPassword("123456");
+                    SqlStatement.insertAll(Arrays.asList(user));
+                    throw new DataConnectionException("Something went wrong");
+                }
+            });
+            fail("The exception should have been rethrown");
+        }
+        catch (DataConnectionException e) {
+            assertEquals("Something went wrong", e.getMessage());
+        }
+
+        assertEquals(0, SqlStatement.select(User.class).getCount());
+    }
+
+    @Test
+    public void testInsertAllRequiresObjectsOfTheSameClass() {
+        DataConnectionManager.init("test/test.db");
+        User user = new User();
+        user.setName("Nick");
+        Thing thing = new Thing();
+        thing.setName("Thing1");
+        try {
+            SqlStatement.insertAll(Arrays.<Object>asList(user, thing));
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException e) {
+            assertTrue(e.getMessage().startsWith("All of the objects in a batch must be of the same class"));
+        }
+    }
+
+    @Test
+    public void testUpdateAll() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        createUser("Nick");
+        createUser("John");
+        List<User> users = SqlStatement.select(User.class).getList();
+        for (User user : users) {
+            user.setPassword("abcdef");
+        }
+
+        assertEquals(2, SqlStatement.updateAll(users));
+        assertEquals(2, SqlStatement.select(User.class).where("password").eq("abcdef").getCount());
+
+        SqlStatement.delete(User.class).where("name").like("%").execute();
+    }
+
+    @Test
+    public void testDeleteAllSplitsTheKeysAcrossStatements() throws DataConnectionException {
+        DataConnectionManager.init("test/test.db");
+        List<User> users = new ArrayList<User>();
+        for (int i = 0; i < 1500; i++) {
+            User user = new User();
+            user.setName("User" + i);
+            users.add(user);
+        }
+        SqlStatement.insertAll(users);
+        createUser("Nick");
+
+        assertEquals(1500, SqlStatement.deleteAll(users));
+        assertEquals(1, SqlStatement.select(User.class).getCount());
+        assertEquals("Nick", SqlStatement.select(User.class).getFirst().getName());
+
+        SqlStatement.delete(User.class).where("name").like("%").execute();
+    }
+
+    @Test
+    public void testFindById() throws DataConnectionException {
+        createUser("Nick");
+        long id = SqlStatement.select(User.class).getFirst().getId();
+
+        assertEquals("Nick", SqlStatement.findById(User.class, id).getName());
+        assertEquals("Nick", SqlStatement.findById(User.class, (int) id).getName());
+        assertNull(SqlStatement.findById(User.class, id + 1));
+
+        SqlStatement.delete(User.class).where("name").like("%").execute();
+    }
+
+    @Test
+    public void testFindByIdWithThePrimaryKeyCache() throws DataConnectionException {
+        createUser("Nick");
+        long id = SqlStatement.select(User.class).getFirst().getId();
+        DataConnectionManager.setPrimaryKeyCacheSize(10);
+        try {
+            long hits = DataConnectionManager.getPrimaryKeyCacheHits();
+            SqlStatement.findById(User.class, id);
+            User nick = SqlStatement.findById(User.class, id);
+            assertEquals(hits + 1, DataConnectionManager.getPrimaryKeyCacheHits());
+            assertEquals("Nick", nick.getName());
+
+            nick.setName("John");
+            SqlStatement.update(nick).execute();
+            assertEquals("The update invalidates the cached row", "John", SqlStatement.findById(User.class, id).getName());
+            assertEquals(hits + 1, DataConnectionManager.getPrimaryKeyCacheHits());
+            assertEquals("John", SqlStatement.findById(User.class, id).getName());
+            assertEquals(hits + 2, DataConnectionManager.getPrimaryKeyCacheHits());
+        }
+        finally {
+            DataConnectionManager.setPrimaryKeyCacheSize(0);
+            SqlStatement.delete(User.class).where("name").like("%").execute();
+        }
+    }
+
     public void createUser(String name) throws DataConnectionException {
         DataConnectionManager.init("test/test.db");
         User user = new User();
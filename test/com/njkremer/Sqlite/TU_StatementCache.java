@@ -0,0 +1,131 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TU_StatementCache {
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        connection.createStatement().execute("create table user (id INTEGER PRIMARY KEY, name TEXT)");
+        connection.createStatement().execute("insert into user (name) values ('Nick')");
+        cache = new StatementCache(connection, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void testReleasedStatementIsReused() throws SQLException {
+        PreparedStatement statement = cache.prepare(SELECT_BY_ID, false);
+        cache.release(statement);
+
+        assertSame(statement, cache.prepare(SELECT_BY_ID, false));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testGeneratedKeysFlagIsPartOfTheKey() throws SQLException {
+        PreparedStatement statement = cache.prepare(SELECT_BY_ID, false);
+        cache.release(statement);
+
+        assertNotSame(statement, cache.prepare(SELECT_BY_ID, true));
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testStatementInUseIsntShared() throws SQLException {
+        PreparedStatement first = cache.prepare(SELECT_BY_ID, false);
+        PreparedStatement second = cache.prepare(SELECT_BY_ID, false);
+        assertNotSame(first, second);
+
+        cache.release(first);
+        cache.release(second);
+        assertEquals("The duplicate should have been closed rather than cached", 1, cache.size());
+    }
+
+    @Test
+    public void testBatchedStatementsAreCachedSeparately() throws SQLException {
+        PreparedStatement batched = cache.prepareBatch(INSERT);
+        for (int i = 0; i < 3; i++) {
+            batched.setString(1, "User" + i);
+            batched.addBatch();
+        }
+        batched.executeBatch();
+        cache.release(batched);
+
+        PreparedStatement statement = cache.prepare(INSERT, true);
+        assertNotSame(batched, statement);
+        statement.setString(1, "John");
+        statement.execute();
+        cache.release(statement);
+
+        assertSame(batched, cache.prepareBatch(INSERT));
+    }
+
+    @Test
+    public void testParametersAreClearedOnRelease() throws SQLException {
+        PreparedStatement statement = cache.prepare(SELECT_BY_ID, false);
+        statement.setLong(1, 1);
+        ResultSet resultSet = statement.executeQuery();
+        assertEquals("Nick", resultSet.getString(1));
+        resultSet.close();
+        cache.release(statement);
+
+        statement = cache.prepare(SELECT_BY_ID, false);
+        assertFalse("A cleared parameter is bound as null", statement.executeQuery().next());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStatementIsEvictedAndClosed() throws SQLException {
+        PreparedStatement evicted = cache.prepare(SELECT_BY_ID, false);
+        cache.release(evicted);
+        cache.release(cache.prepare("select name from user;", false));
+        cache.release(cache.prepare("select id from user;", false));
+
+        assertEquals(2, cache.size());
+        try {
+            evicted.executeQuery();
+            fail("The evicted statement should have been closed");
+        }
+        catch (SQLException e) {
+            // expected
+        }
+        assertNotSame(evicted, cache.prepare(SELECT_BY_ID, false));
+    }
+
+    @Test
+    public void testCachingCanBeTurnedOff() throws SQLException {
+        cache.release(cache.prepare(SELECT_BY_ID, false));
+        cache.setCapacity(0);
+        assertEquals(0, cache.size());
+
+        cache.release(cache.prepare(SELECT_BY_ID, false));
+        assertEquals(0, cache.size());
+    }
+
+    private Connection connection;
+    private StatementCache cache;
+
+    private static final String INSERT = "insert into user (name) values(?);";
+    private static final String SELECT_BY_ID = "select name from user where id = ?;";
+}
@@ -0,0 +1,197 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.apache.log4j.SimpleLayout;
+import org.apache.log4j.WriterAppender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.Measurement;
+import com.njkremer.Sqlite.TestClass.User;
+
+public class TU_StatementListener {
+
+    @Before
+    public void setUp() {
+        DataConnectionManager.init("test/test.db");
+        DataConnectionManager.addStatementListener(listener);
+    }
+
+    @After
+    public void tearDown() throws DataConnectionException {
+        DataConnectionManager.removeStatementListener(listener);
+        SqlStatement.delete(User.class).where("name").like("%").execute();
+    }
+
+    @Test
+    public void testWritesAreReportedWithTheRowsChanged() throws DataConnectionException {
+        SqlStatement.insert(createUser("Nick")).execute();
+
+        assertEquals(1, listener.before.size());
+        StatementEvent event = listener.getOnlyEvent();
+        assertSame(listener.before.get(0), event);
+        assertEquals(StatementType.INSERT, event.getType());
+        assertEquals(1, event.getRowCount());
+        assertTrue(event.getElapsedNanos() >= 0);
+        assertNull(event.getError());
+        assertTrue(event.getParameters().contains("Nick"));
+        assertTrue(event.getSql().contains("Nick"));
+    }
+
+    @Test
+    public void testSelectsAreReportedWithTheRowsRead() throws DataConnectionException {
+        SqlStatement.insertAll(Arrays.asList(createUser("Nick"), createUser("John"), createUser("Bob")));
+        assertEquals(StatementType.INSERT, listener.getOnlyEvent().getType());
+        assertEquals(3, listener.getOnlyEvent().getRowCount());
+
+        listener.clear();
+        assertEquals(3, SqlStatement.select(User.class).getList().size());
+        assertEquals(StatementType.SELECT, listener.getOnlyEvent().getType());
+        assertEquals(3, listener.getOnlyEvent().getRowCount());
+
+        listener.clear();
+        ResultIterator<User> users = SqlStatement.select(User.class).iterate();
+        users.next();
+        assertTrue("A select isn't finished until its results are closed", listener.after.isEmpty());
+        users.close();
+        assertEquals(1, listener.getOnlyEvent().getRowCount());
+    }
+
+    @Test
+    public void testFailedStatementsAreReportedWithTheirError() throws SQLException {
+        Statement statement = DataConnectionManager.getConnection().createStatement();
+        statement.execute("create temp trigger failing_insert before insert on user begin select raise(abort, 'failing insert'); end;");
+        try {
+            SqlStatement.insert(createUser("Nick")).execute();
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException e) {
+            StatementEvent event = listener.getOnlyEvent();
+            assertNotNull(event.getError());
+            assertSame(event.getError(), e.getCause());
+            assertEquals(-1, event.getRowCount());
+        }
+        finally {
+            statement.execute("drop trigger failing_insert;");
+            statement.close();
+        }
+    }
+
+    @Test
+    public void testStatementsThatCantBePreparedArentReported() {
+        try {
+            // There's no measurement table in the test database.
+            SqlStatement.insert(new Measurement()).execute();
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException e) {
+            assertTrue(listener.before.isEmpty());
+            assertTrue(listener.after.isEmpty());
+        }
+    }
+
+    @Test
+    public void testAFailingListenerDoesntFailTheStatement() throws DataConnectionException {
+        StatementListener failing = new StatementListener() {
+            public void beforeExecute(StatementEvent event) {
+                throw new IllegalStateException("before");
+            }
+
+            public void afterExecute(StatementEvent event) {
+                throw new IllegalStateException("after");
+            }
+        };
+        DataConnectionManager.addStatementListener(failing);
+        try {
+            SqlStatement.insert(createUser("Nick")).execute();
+        }
+        finally {
+            DataConnectionManager.removeStatementListener(failing);
+        }
+        assertEquals(1, SqlStatement.select(User.class).getCount());
+        assertEquals(StatementType.INSERT, listener.after.get(0).getType());
+    }
+
+    @Test
+    public void testTheSlowQueryLogOnlyLogsStatementsOverItsThreshold() throws DataConnectionException {
+        StringWriter log = new StringWriter();
+        WriterAppender appender = new WriterAppender(new SimpleLayout(), log);
+        Logger.getLogger(SlowQueryLog.class).addAppender(appender);
+        SlowQueryLog slow = new SlowQueryLog(0);
+        SlowQueryLog neverSlow = new SlowQueryLog(60 * 60 * 1000);
+        DataConnectionManager.addStatementListener(slow);
+        DataConnectionManager.addStatementListener(neverSlow);
+        try {
+            SqlStatement.select(User.class).where("name").eq("Nick").getList();
+            DataConnectionManager.removeStatementListener(slow);
+            SqlStatement.select(User.class).where("name").eq("John").getList();
+        }
+        finally {
+            DataConnectionManager.removeStatementListener(slow);
+            DataConnectionManager.removeStatementListener(neverSlow);
+            Logger.getLogger(SlowQueryLog.class).removeAppender(appender);
+        }
+        assertTrue(log.toString(), log.toString().contains("Slow statement"));
+        assertTrue(log.toString(), log.toString().contains("Nick"));
+        assertFalse(log.toString(), log.toString().contains("John"));
+    }
+
+    @Test
+    public void testRenderFillsInTheParametersInOrder() {
+        List<Object> parameters = Arrays.<Object>asList("Nick", 5);
+        assertEquals("select * from user where name like 'N%' and name = Nick and id = 5",
+                StatementEvent.render("select * from user where name like 'N%' and name = ? and id = ?", parameters));
+        assertEquals("where a = 1 and b = ?", StatementEvent.render("where a = ? and b = ?", Arrays.<Object>asList(1)));
+    }
+
+    private User createUser(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setPassword("123456");
+        return user;
+    }
+
+    private final RecordingListener listener = new RecordingListener();
+
+    private static final class RecordingListener implements StatementListener {
+
+        public void beforeExecute(StatementEvent event) {
+            assertFalse(event.isFinished());
+            before.add(event);
+        }
+
+        public void afterExecute(StatementEvent event) {
+            assertTrue(event.isFinished());
+            after.add(event);
+        }
+
+        StatementEvent getOnlyEvent() {
+            assertEquals(1, after.size());
+            return after.get(0);
+        }
+
+        void clear() {
+            before.clear();
+            after.clear();
+        }
+
+        private final List<StatementEvent> before = new ArrayList<StatementEvent>();
+        private final List<StatementEvent> after = new ArrayList<StatementEvent>();
+    }
+}
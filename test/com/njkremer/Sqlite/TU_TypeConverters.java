@@ -0,0 +1,112 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.Measurement;
+import com.njkremer.Sqlite.TestClass.Measurement.Unit;
+
+public class TU_TypeConverters {
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        connection.createStatement().execute("create table measurement (id INTEGER PRIMARY KEY, unit, precision INTEGER, flags INTEGER, amount TEXT, code TEXT, data BLOB)");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void testRoundTrippingTheBuiltInTypes() throws Exception {
+        Measurement measurement = new Measurement();
+        measurement.setUnit(Unit.METERS);
+        measurement.setPrecision((short) 3);
+        measurement.setAmount(new BigDecimal("12345678901234567890.123456789"));
+        measurement.setCode(UUID.fromString("3f2504e0-4f89-11d3-9a0c-0305e82c3301"));
+        measurement.setData(new byte[] { 1, 2, 3 });
+        insert(measurement);
+
+        Measurement read = read("select * from measurement");
+        assertEquals(Unit.METERS, read.getUnit());
+        assertEquals(3, read.getPrecision());
+        assertNull("A null Byte should stay null", read.getFlags());
+        assertEquals(new BigDecimal("12345678901234567890.123456789"), read.getAmount());
+        assertEquals(UUID.fromString("3f2504e0-4f89-11d3-9a0c-0305e82c3301"), read.getCode());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, read.getData());
+
+        ResultSet resultSet = connection.createStatement().executeQuery("select unit from measurement");
+        assertEquals("Enums are stored by name by default", "METERS", resultSet.getString(1));
+        resultSet.close();
+    }
+
+    @Test
+    public void testRegisteringAConverter() throws Exception {
+        TypeConverters.register(Unit.class, TypeConverters.enumByOrdinal(Unit.class));
+        try {
+            PreparedStatement statement = connection.prepareStatement("select ?");
+            TypeConverters.bind(statement, 1, Unit.SECONDS);
+            ResultSet resultSet = statement.executeQuery();
+            assertEquals(2, resultSet.getInt(1));
+            assertEquals(Unit.SECONDS, TypeConverters.forType(Unit.class).read(resultSet, 1));
+            resultSet.close();
+        }
+        finally {
+            TypeConverters.register(Unit.class, TypeConverters.enumByName(Unit.class));
+        }
+    }
+
+    @Test
+    public void testBindingAnUnsupportedType() throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("select ?");
+        try {
+            TypeConverters.bind(statement, 1, new StringBuilder("value"));
+            fail("An exception should have been thrown");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage().endsWith("is not a supported object"));
+        }
+    }
+
+    private void insert(Measurement measurement) throws Exception {
+        EntityMetadata metadata = EntityMetadata.forClass(Measurement.class);
+        List<ColumnMetadata> columns = metadata.getPersistedColumns();
+        PreparedStatement statement = connection.prepareStatement(SqlExecutor.getInsertQuery(metadata));
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).bind(statement, i + 1, measurement);
+        }
+        statement.executeUpdate();
+        statement.close();
+    }
+
+    private Measurement read(String sql) throws Exception {
+        ResultSet resultSet = connection.createStatement().executeQuery(sql);
+        ColumnPlan plan = ColumnPlan.forEntity(EntityMetadata.forClass(Measurement.class), resultSet.getMetaData());
+        assertTrue(resultSet.next());
+        Measurement measurement = new Measurement();
+        plan.read(measurement, resultSet);
+        resultSet.close();
+        return measurement;
+    }
+
+    private Connection connection;
+}
@@ -0,0 +1,159 @@
+package com.njkremer.Sqlite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.njkremer.Sqlite.TestClass.Measurement;
+import com.njkremer.Sqlite.TestClass.User;
+
+public class TU_WriteBehindQueue {
+
+    @Before
+    public void setUp() {
+        DataConnectionManager.init("test/test.db");
+    }
+
+    @After
+    public void tearDown() throws DataConnectionException {
+        DataConnectionManager.disableWriteBehind();
+        SqlStatement.delete(User.class).where("name").like("%").execute();
+    }
+
+    @Test
+    public void testQueuedWritesAreWritten() throws DataConnectionException {
+        DataConnectionManager.enableWriteBehind(50, 20, 1000);
+        for (int i = 0; i < 200; i++) {
+            SqlStatement.insert(createUser("User" + i)).execute();
+        }
+        DataConnectionManager.flushWriteBehind();
+        assertEquals(200, SqlStatement.select(User.class).getCount());
+
+        User user = SqlStatement.select(User.class).where("name").eq("User0").getFirst();
+        user.setPassword("changed");
+        SqlStatement.update(user).execute();
+        DataConnectionManager.disableWriteBehind();
+        assertEquals("changed", SqlStatement.select(User.class).where("name").eq("User0").getFirst().getPassword());
+    }
+
+    @Test
+    public void testAFullBatchIsCommittedWithoutWaitingForTheDelay() throws Exception {
+        DataConnectionManager.enableWriteBehind(2, TimeUnit.MINUTES.toMillis(1), 10);
+        Future<Void> first = SqlStatement.insert(createUser("Nick")).executeAsync();
+        Future<Void> second = SqlStatement.insert(createUser("John")).executeAsync();
+
+        second.get(10, TimeUnit.SECONDS);
+        assertTrue(first.isDone());
+        assertFalse("A queued write can't be cancelled", first.cancel(true));
+        assertEquals(2, SqlStatement.select(User.class).getCount());
+    }
+
+    @Test
+    public void testAFailedWriteOnlyFailsItsOwnFuture() throws Exception {
+        DataConnectionManager.enableWriteBehind(10, 50, 10);
+        List<Future<Void>> writes = new ArrayList<Future<Void>>();
+        writes.add(SqlStatement.insert(createUser("Nick")).executeAsync());
+        // There's no measurement table in the test database.
+        writes.add(SqlStatement.insert(new Measurement()).executeAsync());
+        writes.add(SqlStatement.insert(createUser("John")).executeAsync());
+
+        writes.get(0).get();
+        writes.get(2).get();
+        try {
+            writes.get(1).get();
+            fail("An exception should have been thrown");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DataConnectionException);
+        }
+        assertEquals(2, SqlStatement.select(User.class).getCount());
+    }
+
+    @Test
+    public void testFlushWaitsForTheBatchWhenItsLastWriteFails() throws DataConnectionException {
+        DataConnectionManager.enableWriteBehind(10, TimeUnit.MINUTES.toMillis(1), 10);
+        List<Future<Void>> writes = new ArrayList<Future<Void>>();
+        writes.add(SqlStatement.insert(createUser("Nick")).executeAsync());
+        writes.add(SqlStatement.insert(createUser("John")).executeAsync());
+        // There's no measurement table in the test database.
+        writes.add(SqlStatement.insert(new Measurement()).executeAsync());
+
+        DataConnectionManager.flushWriteBehind();
+        for (Future<Void> write : writes) {
+            assertTrue(write.isDone());
+        }
+        assertEquals(2, SqlStatement.select(User.class).getCount());
+    }
+
+    @Test
+    public void testAQueuedUpdateWritesTheValuesTheObjectHadWhenItWasQueued() throws DataConnectionException {
+        SqlStatement.insertAll(Arrays.asList(createUser("Nick")));
+        User user = SqlStatement.select(User.class).where("name").eq("Nick").getFirst();
+
+        DataConnectionManager.enableWriteBehind(10, TimeUnit.MINUTES.toMillis(1), 10);
+        user.setPassword("queued");
+        SqlStatement.update(user).execute();
+        user.setPassword("changed after queueing");
+        DataConnectionManager.flushWriteBehind();
+
+        assertEquals("queued", SqlStatement.select(User.class).where("name").eq("Nick").getFirst().getPassword());
+    }
+
+    @Test
+    public void testFlushAndDisableCantBeCalledInATransaction() throws DataConnectionException {
+        DataConnectionManager.enableWriteBehind(10, 50, 10);
+        DataConnectionManager.beginTransaction();
+        try {
+            try {
+                DataConnectionManager.flushWriteBehind();
+                fail("An exception should have been thrown");
+            }
+            catch (IllegalStateException e) {
+                // The writer would wait on this transaction while this waits on the writer.
+            }
+            try {
+                DataConnectionManager.disableWriteBehind();
+                fail("An exception should have been thrown");
+            }
+            catch (IllegalStateException e) {
+                // The same goes for waiting on the queued writes before turning it off.
+            }
+        }
+        finally {
+            DataConnectionManager.rollbackTransaction();
+        }
+    }
+
+    @Test
+    public void testWritesInATransactionArentQueued() throws DataConnectionException {
+        DataConnectionManager.enableWriteBehind(10, TimeUnit.MINUTES.toMillis(1), 10);
+        DataConnectionManager.beginTransaction();
+        try {
+            SqlStatement.insert(createUser("Nick")).execute();
+            assertEquals(1, SqlStatement.select(User.class).getCount());
+        }
+        finally {
+            DataConnectionManager.rollbackTransaction();
+        }
+        assertEquals(0, SqlStatement.select(User.class).getCount());
+    }
+
+    private User createUser(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setPassword("123456");
+        return user;
+    }
+}
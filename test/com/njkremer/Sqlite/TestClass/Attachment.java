@@ -0,0 +1,48 @@
+package com.njkremer.Sqlite.TestClass;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.njkremer.Sqlite.Annotations.AutoIncrement;
+import com.njkremer.Sqlite.Annotations.PrimaryKey;
+
+public class Attachment {
+    @AutoIncrement
+    @PrimaryKey
+    private long id;
+    private String name;
+    private byte[] contents;
+    private ByteBuffer thumbnail;
+    private InputStream original;
+
+    public long getId() {
+        return id;
+    }
+    public void setId(long id) {
+        this.id = id;
+    }
+    public String getName() {
+        return name;
+    }
+    public void setName(String name) {
+        this.name = name;
+    }
+    public byte[] getContents() {
+        return contents;
+    }
+    public void setContents(byte[] contents) {
+        this.contents = contents;
+    }
+    public ByteBuffer getThumbnail() {
+        return thumbnail;
+    }
+    public void setThumbnail(ByteBuffer thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+    public InputStream getOriginal() {
+        return original;
+    }
+    public void setOriginal(InputStream original) {
+        this.original = original;
+    }
+}
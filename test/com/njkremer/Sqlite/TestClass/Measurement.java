@@ -0,0 +1,66 @@
+package com.njkremer.Sqlite.TestClass;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import com.njkremer.Sqlite.Annotations.AutoIncrement;
+import com.njkremer.Sqlite.Annotations.PrimaryKey;
+
+public class Measurement {
+    public enum Unit {
+        GRAMS, METERS, SECONDS
+    }
+
+    @AutoIncrement
+    @PrimaryKey
+    private long id;
+    private Unit unit;
+    private short precision;
+    private Byte flags;
+    private BigDecimal amount;
+    private UUID code;
+    private byte[] data;
+
+    public long getId() {
+        return id;
+    }
+    public void setId(long id) {
+        this.id = id;
+    }
+    public Unit getUnit() {
+        return unit;
+    }
+    public void setUnit(Unit unit) {
+        this.unit = unit;
+    }
+    public short getPrecision() {
+        return precision;
+    }
+    public void setPrecision(short precision) {
+        this.precision = precision;
+    }
+    public Byte getFlags() {
+        return flags;
+    }
+    public void setFlags(Byte flags) {
+        this.flags = flags;
+    }
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    public UUID getCode() {
+        return code;
+    }
+    public void setCode(UUID code) {
+        this.code = code;
+    }
+    public byte[] getData() {
+        return data;
+    }
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+}
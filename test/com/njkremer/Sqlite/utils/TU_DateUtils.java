@@ -0,0 +1,73 @@
+package com.njkremer.Sqlite.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.njkremer.Sqlite.DataConnectionException;
+
+public class TU_DateUtils {
+
+    @Test
+    public void testRoundTrip() throws DataConnectionException {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2012, 0, 31, 23, 59, 58);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        String string = DateUtils.getDatabaseFormattedStringFromDate(calendar.getTime());
+        assertEquals("2012-01-31T23:59:58", string);
+        assertEquals(calendar.getTime(), DateUtils.getDateFromDatabaseFormattedString(string));
+        assertNull(DateUtils.getDateFromDatabaseFormattedString(null));
+    }
+
+    @Test
+    public void testParsingSomethingThatIsntADate() {
+        try {
+            DateUtils.getDateFromDatabaseFormattedString("2012-01-xxT00:00:00");
+            fail("An exception should have been thrown");
+        }
+        catch (DataConnectionException e) {
+            assertEquals("Error could not parse a date from the supplied string '2012-01-xxT00:00:00' make sure it's in the form 'yyyy-MM-dd HH:mm:ss'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParsingFromManyThreads() throws InterruptedException {
+        final AtomicInteger wrong = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            final int hour = i;
+            pool.execute(new Runnable() {
+                public void run() {
+                    Calendar calendar = Calendar.getInstance();
+                    calendar.set(2012, 5, 15, hour, 30, 0);
+                    calendar.set(Calendar.MILLISECOND, 0);
+                    Date date = calendar.getTime();
+                    for (int j = 0; j < 1000; j++) {
+                        try {
+                            if (!date.equals(DateUtils.getDateFromDatabaseFormattedString(DateUtils.getDatabaseFormattedStringFromDate(date)))) {
+                                wrong.incrementAndGet();
+                            }
+                        }
+                        catch (DataConnectionException e) {
+                            wrong.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertEquals(0, wrong.get());
+    }
+}